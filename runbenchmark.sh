@@ -0,0 +1,20 @@
+#!/bin/bash
+#
+# runbenchmark.sh [-runs <n>] [-warmup <n>] [-threads <n>] [-info <sieve-xml>]
+# runbenchmark.sh -raw <text-file-or-dir> [-dct <yyyy-mm-dd>] [-runs <n>] [-warmup <n>] [-threads <n>]
+#
+# Throughput of the sieves over the TimeBank file (default), or of raw text markup.
+#
+
+props=default.properties
+sieves=default.sieves
+args="-runs 5 -warmup 2"
+
+# Having extra space at the end of the string seems to make maven angry.
+# Don't add arguments from $@ unless we have to.
+if (( $# > 0 )); then
+    args="$args $@"
+fi
+
+
+mvn exec:java -Dexec.mainClass=caevo.ThroughputBenchmark -Dprops=$props -Dsieves=$sieves -Dexec.args="$args"
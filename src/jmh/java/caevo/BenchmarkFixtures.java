@@ -0,0 +1,28 @@
+package caevo;
+
+import java.io.File;
+
+/**
+ * Shared inputs for the JMH benchmarks. The documents come from the bundled TimeBank file,
+ * which is read once per benchmark JVM.
+ *
+ * Set -Dcaevo.benchmark.data=<path> to use a different SieveDocuments file.
+ */
+class BenchmarkFixtures {
+  static final String DEFAULT_DATA = "src/main/resources/tempeval3-timebankonly-SIEVE.xml";
+
+  private static SieveDocuments timebank;
+
+  /**
+   * @return The TimeBank documents. Benchmarks share this object, so they must not change it.
+   */
+  static synchronized SieveDocuments timebank() {
+    if( timebank == null ) {
+      String path = System.getProperty("caevo.benchmark.data", DEFAULT_DATA);
+      if( !new File(path).exists() )
+        throw new RuntimeException("Benchmark data not found: " + path + " (run from the project directory or set -Dcaevo.benchmark.data)");
+      timebank = new SieveDocuments(path);
+    }
+    return timebank;
+  }
+}
@@ -0,0 +1,109 @@
+package caevo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import caevo.tlink.EventEventLink;
+import caevo.tlink.TLink;
+
+/**
+ * Closure.computeClosure() on synthetic link graphs and on the TimeBank gold links.
+ *
+ * The synthetic graphs are made of small components (like the events around a few sentences),
+ * each a random tree of links with mixed relations. The closure grows linearly with the number
+ * of nodes, so the larger sizes measure the rule lookups rather than an exploding link list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClosureBenchmark {
+  static final int COMPONENT_SIZE = 25;
+  static final TLink.Type[] RELATIONS = { TLink.Type.BEFORE, TLink.Type.AFTER, TLink.Type.INCLUDES,
+    TLink.Type.IS_INCLUDED, TLink.Type.SIMULTANEOUS, TLink.Type.VAGUE };
+
+  @State(Scope.Benchmark)
+  public static class SyntheticGraph {
+    @Param({ "50", "500", "5000" })
+    int nodes;
+
+    Closure closure;
+    List<TLink> links;
+    // An already closed graph with the last 10% of the links appended, as the sieves leave it.
+    List<TLink> incremental;
+    int numClosed;
+
+    @Setup
+    public void setup() throws Exception {
+      closure = new Closure();
+      links = randomLinks(nodes, new Random(42));
+
+      int split = links.size() - links.size() / 10;
+      incremental = new ArrayList<TLink>(links.subList(0, split));
+      incremental.addAll(closure.computeClosure(incremental, false));
+      numClosed = incremental.size();
+      incremental.addAll(links.subList(split, links.size()));
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class TimeBankLinks {
+    Closure closure;
+    List<List<TLink>> docLinks = new ArrayList<List<TLink>>();
+
+    @Setup
+    public void setup() throws Exception {
+      closure = new Closure();
+      for( SieveDocument doc : BenchmarkFixtures.timebank().getDocuments() )
+        docLinks.add(doc.getTlinksNoClosures());
+    }
+  }
+
+  @Benchmark
+  public List<TLink> fullClosure(SyntheticGraph graph) {
+    return graph.closure.computeClosure(graph.links, false);
+  }
+
+  @Benchmark
+  public List<TLink> incrementalClosure(SyntheticGraph graph) {
+    return graph.closure.computeClosure(graph.incremental, graph.numClosed, false);
+  }
+
+  @Benchmark
+  public int timebankClosure(TimeBankLinks timebank) {
+    int numClosed = 0;
+    for( List<TLink> links : timebank.docLinks )
+      numClosed += timebank.closure.computeClosure(links, false).size();
+    return numClosed;
+  }
+
+  /**
+   * @return Links over the given number of event ids. Each node links to one earlier node in its
+   *         component, so there are no duplicate pairs and no cycles.
+   */
+  static List<TLink> randomLinks(int nodes, Random random) {
+    List<TLink> links = new ArrayList<TLink>();
+    for( int ii = 0; ii < nodes; ii++ ) {
+      int offset = ii % COMPONENT_SIZE;
+      if( offset == 0 ) continue;
+      int other = ii - 1 - random.nextInt(offset);
+      links.add(new EventEventLink("e" + other, "e" + ii, RELATIONS[random.nextInt(RELATIONS.length)]));
+    }
+    return links;
+  }
+}
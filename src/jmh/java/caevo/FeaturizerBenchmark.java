@@ -0,0 +1,62 @@
+package caevo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import caevo.tlink.TLinkFeaturizer;
+import caevo.util.WordNet;
+
+/**
+ * TLinkFeaturizer.createEventEventDatum() on every pair of neighboring events in the same
+ * TimeBank sentence. The parse trees are deserialized during setup, so this measures only the
+ * feature extraction (including the WordNet lookups).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeaturizerBenchmark {
+  TLinkFeaturizer featurizer;
+  List<SieveDocument> pairDocs = new ArrayList<SieveDocument>();
+  List<TextEvent> firstEvents = new ArrayList<TextEvent>();
+  List<TextEvent> secondEvents = new ArrayList<TextEvent>();
+
+  @Setup
+  public void setup() {
+    featurizer = new TLinkFeaturizer();
+    featurizer.setWordNet(new WordNet());
+
+    for( SieveDocument doc : BenchmarkFixtures.timebank().getDocuments() ) {
+      doc.getAllParseTrees();
+      for( SieveSentence sent : doc.getSentences() ) {
+        List<TextEvent> events = sent.events();
+        for( int ii = 1; events != null && ii < events.size(); ii++ ) {
+          pairDocs.add(doc);
+          firstEvents.add(events.get(ii-1));
+          secondEvents.add(events.get(ii));
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void createEventEventDatum(Blackhole blackhole) {
+    for( int ii = 0; ii < pairDocs.size(); ii++ )
+      blackhole.consume(featurizer.createEventEventDatum(pairDocs.get(ii), firstEvents.get(ii), secondEvents.get(ii), null));
+  }
+}
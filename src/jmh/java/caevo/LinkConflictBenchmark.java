@@ -0,0 +1,62 @@
+package caevo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import caevo.tlink.LinkGraph;
+import caevo.tlink.TLink;
+import caevo.util.IdIndex;
+
+/**
+ * The link bookkeeping the pipeline does after every sieve: check the proposed links against the
+ * current graph (CaevoPipeline.removeConflicts) and add the survivors (addProposedToCurrentList).
+ *
+ * For each TimeBank document, the first half of its gold links is the current graph and all of
+ * its gold links are proposed, so half of the proposals conflict and half are added.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkConflictBenchmark {
+  List<IdIndex> docIds = new ArrayList<IdIndex>();
+  List<List<TLink>> docLinks = new ArrayList<List<TLink>>();
+
+  @Setup
+  public void setup() {
+    for( SieveDocument doc : BenchmarkFixtures.timebank().getDocuments() ) {
+      docIds.add(doc.getIdIndex());
+      docLinks.add(doc.getTlinksNoClosures());
+    }
+  }
+
+  @Benchmark
+  public int removeConflictsAndAdd() {
+    int numLinks = 0;
+    for( int dd = 0; dd < docLinks.size(); dd++ ) {
+      List<TLink> links = docLinks.get(dd);
+      LinkGraph current = new LinkGraph(docIds.get(dd));
+      CaevoPipeline.addProposedToCurrentList("current", new ArrayList<TLink>(links.subList(0, links.size() / 2)), current);
+
+      List<TLink> proposed = new ArrayList<TLink>(links);
+      CaevoPipeline.removeConflicts(current, proposed, false);
+      CaevoPipeline.addProposedToCurrentList("proposed", proposed, current);
+      numLinks += current.size();
+    }
+    return numLinks;
+  }
+}
@@ -0,0 +1,58 @@
+package caevo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import caevo.util.TreeOperator;
+import edu.stanford.nlp.trees.LabeledScoredTreeFactory;
+import edu.stanford.nlp.trees.TreeFactory;
+
+/**
+ * Rebuilding the parse trees and typed dependencies of every TimeBank sentence from their
+ * stored strings, which SieveSentence.getParseTree() and getDeps() do on first use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SieveSentenceBenchmark {
+  List<String> parses = new ArrayList<String>();
+  List<String> deps = new ArrayList<String>();
+
+  @Setup
+  public void setup() {
+    for( SieveDocument doc : BenchmarkFixtures.timebank().getDocuments() )
+      for( SieveSentence sent : doc.getSentences() ) {
+        if( sent.parseString() != null ) parses.add(sent.parseString());
+        if( sent.depsString() != null ) deps.add(sent.depsString());
+      }
+  }
+
+  @Benchmark
+  public void parseTrees(Blackhole blackhole) {
+    TreeFactory tf = new LabeledScoredTreeFactory();
+    for( String parse : parses )
+      blackhole.consume(TreeOperator.stringToTree(parse, tf));
+  }
+
+  @Benchmark
+  public void dependencies(Blackhole blackhole) {
+    for( String dep : deps )
+      blackhole.consume(TreeOperator.stringToDependencies(dep));
+  }
+}
@@ -0,0 +1,448 @@
+package caevo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.w3c.dom.Document;
+
+import caevo.sieves.GraphSieve;
+import caevo.sieves.ModelSieve;
+import caevo.sieves.Sieve;
+import caevo.sieves.WordNetSieve;
+import caevo.tlink.LinkGraph;
+import caevo.tlink.TLink;
+import caevo.util.CaevoProperties;
+import caevo.util.DCTHeursitics;
+import caevo.util.IdIndex;
+import caevo.util.Ling;
+import caevo.util.ParseCache;
+import caevo.util.SieveStats;
+import caevo.util.ThreadUsage;
+import caevo.util.Util;
+import caevo.util.WordNet;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.trees.GrammaticalStructureFactory;
+import edu.stanford.nlp.trees.PennTreebankLanguagePack;
+
+/**
+ * The full CAEVO pipeline (parsing, event and timex extraction, and the tlink sieves) as a
+ * reusable object. Everything is loaded once in the constructor and never changed afterwards,
+ * so one pipeline can be shared by many threads, each calling process() on its own documents.
+ *
+ * The settings come from the same Main.* properties the command line uses (see CaevoProperties).
+ *
+ * Usage:
+ *   CaevoPipeline pipeline = new CaevoPipeline();
+ *   SieveDocument doc = pipeline.process("The storm hit on Monday.", "2013-03-22");
+ *
+ * Thread safety: parsing and the sieves run concurrently. Each thread gets its own sieve instances
+ * on its first document, since sieves are not guaranteed to be thread-safe. Event and timex
+ * extraction share classifiers and run one document at a time.
+ */
+public final class CaevoPipeline {
+	public static final String DEFAULT_SIEVE_LIST = "default.sieves";
+	private static final String DEFAULT_NAME = "input.txt";
+
+	private final String[] sieveClasses;
+	private final boolean debug;
+	private final boolean useClosure;
+	private final boolean force24hrDCT;
+	private final String dctHeuristic;
+	private final String defaultDct;
+	private final int parseThreads;
+
+	private final Closure closure;
+	private final WordNet wordnet;
+	private final LexicalizedParser parser;
+	private final GrammaticalStructureFactory gsf;
+	private final ParseCache parseCache; // null if Main.parseCache is not set
+	private final TextEventClassifier eventClassifier;
+	private final TimexClassifier timexClassifier;
+
+	private final Object extractionLock = new Object();
+	private final ThreadLocal<Sieve[]> threadSieves = new ThreadLocal<Sieve[]>() {
+		protected Sieve[] initialValue() {
+			return createAllSieves();
+		}
+	};
+
+	/**
+	 * Builds a pipeline with the sieve list named by -Dsieves, or default.sieves.
+	 */
+	public CaevoPipeline() throws IOException {
+		this(readSieveList(System.getProperty("sieves") == null ? DEFAULT_SIEVE_LIST : System.getProperty("sieves")));
+	}
+
+	/**
+	 * Builds a pipeline that runs the given sieves, in order.
+	 * @param sieveClasses Sieve class names in caevo.sieves, e.g. "AdjacentVerbTimex".
+	 */
+	public CaevoPipeline(String[] sieveClasses) throws IOException {
+		this.sieveClasses = sieveClasses.clone();
+
+		debug = CaevoProperties.getBoolean("Main.debug", true);
+		useClosure = CaevoProperties.getBoolean("Main.closure", true);
+		force24hrDCT = CaevoProperties.getBoolean("Main.force24hrdct", true);
+		dctHeuristic = CaevoProperties.getString("Main.dctHeuristic", "none");
+		defaultDct = dctHeuristic.equals("setFixedDateAsDCT") ? CaevoProperties.getString("Main.dct") : "";
+		parseThreads = CaevoProperties.getInt("Main.parseThreads", 1);
+
+		// Initialize the transitive closure code.
+		closure = new Closure();
+
+		// This pipeline's WordNet, given to the event classifier and every sieve that uses it.
+		wordnet = new WordNet();
+
+		// Initialize the parser.
+		parser = Ling.createParser(Main.serializedGrammar);
+		if( parser == null )
+			throw new IOException("Failed to create parser from " + Main.serializedGrammar);
+		gsf = new PennTreebankLanguagePack().grammaticalStructureFactory();
+		String cacheDir = CaevoProperties.getString("Main.parseCache", null);
+		parseCache = (cacheDir == null || cacheDir.length() == 0) ? null : new ParseCache(cacheDir, Main.serializedGrammar);
+
+		timexClassifier = new TimexClassifier();
+		timexClassifier.setDebug(debug);
+
+		eventClassifier = new TextEventClassifier(wordnet);
+		eventClassifier.loadClassifiers();
+	}
+
+	/**
+	 * Load every sieve's models now instead of on the first document, e.g. before a server
+	 * starts taking requests. The models are shared through ModelRegistry, so the sieves that
+	 * other threads create later find them already loaded.
+	 */
+	public void warmUp() {
+		for( Sieve sieve : threadSieves.get() )
+			if( sieve instanceof ModelSieve )
+				((ModelSieve)sieve).loadModels();
+	}
+
+	/**
+	 * Parse and mark up raw text.
+	 * @param text The document text.
+	 * @param dct The document creation time (e.g., 2013-03-22) for Main.dctHeuristic=setFixedDateAsDCT,
+	 *            or null for Main.dct.
+	 * @return A new document with events, timexes and tlinks.
+	 */
+	public SieveDocument process(String text, String dct) {
+		return process(DEFAULT_NAME, text, dct);
+	}
+
+	public SieveDocument process(String docname, String text, String dct) {
+		SieveDocument doc = Tempeval3Parser.rawTextToParsed(docname, text, parser, gsf, parseThreads, parseCache);
+		return process(doc, dct);
+	}
+
+	/**
+	 * Parse and mark up an XML document with <TEXT> and <DCT> elements, as in rawxml markup.
+	 */
+	public SieveDocument processRawXML(String docname, Document xml, String dct) {
+		SieveDocument doc = Tempeval3Parser.rawXMLtoSieveDocument(docname, xml, parser, gsf, parseThreads, parseCache);
+		return process(doc, dct);
+	}
+
+	/**
+	 * Mark up a document that is already parsed, using its own creation time if it has one.
+	 * DESTRUCTIVE: the document's events, timexes and tlinks are added to it.
+	 * @return The same document.
+	 */
+	public SieveDocument process(SieveDocument doc) {
+		return process(doc, null);
+	}
+
+	/**
+	 * Mark up a parsed document: events, creation time, timexes, then the tlink sieves.
+	 * DESTRUCTIVE: the document's events, timexes and tlinks are added to it, replacing any tlinks.
+	 * @param dct The creation time for Main.dctHeuristic=setFixedDateAsDCT, or null for Main.dct.
+	 * @return The same document.
+	 */
+	public SieveDocument process(SieveDocument doc, String dct) {
+		extract(doc, dct);
+		doc.removeTlinks();
+		runSieves(doc, threadSieves.get(), null);
+		return doc;
+	}
+
+	/**
+	 * Adds events, the creation time and timexes to a parsed document. The creation time comes
+	 * from DCTHeursitics.markupDCT(), the same as in Main.markupAll().
+	 * @param dct The creation time for Main.dctHeuristic=setFixedDateAsDCT, or null for Main.dct.
+	 */
+	void extract(SieveDocument doc, String dct) {
+		SieveDocuments single = new SieveDocuments();
+		single.addDocument(doc);
+		synchronized( extractionLock ) {
+			eventClassifier.extractEvents(single);
+
+			DCTHeursitics.markupDCT(doc, dctHeuristic, (dct == null ? defaultDct : dct));
+
+			timexClassifier.markupTimex3(single);
+		}
+
+		// Fix DCTs that aren't 24-hour days.
+		if( force24hrDCT && doc.getDocstamp() != null )
+			for( Timex stamp : doc.getDocstamp() )
+				Util.force24hrTimex(stamp);
+	}
+
+	/**
+	 * Run the sieves over a document that already has its events and timexes, using this
+	 * thread's sieve instances. Existing tlinks are kept and the new ones are added to them.
+	 */
+	void runSieves(SieveDocument doc) {
+		runSieves(doc, threadSieves.get(), null);
+	}
+
+	/**
+	 * Run every sieve in order over a single document, then add the final links to the document.
+	 * All link state is local to this call, so different documents can run on different threads
+	 * as long as each thread has its own sieves and stats.
+	 * @param sieves The sieve instances, in the same order as this pipeline's sieve list.
+	 * @param stats Per-sieve counts and timings to update, or null.
+	 */
+	void runSieves(SieveDocument doc, Sieve[] sieves, SieveStats[] stats) {
+		// Start with zero links.
+		LinkGraph currentTLinks = new LinkGraph(doc.getIdIndex());
+
+		System.out.println("Processing " + doc.getDocname() + "...");
+//		System.out.println("Number of gold links: " + thedocsUnchanged.getDocument(doc.getDocname()).getTlinks().size());
+
+		// Loop over the sieves in order.
+		for( int xx = 0; xx < sieves.length; xx++ ) {
+			Sieve sieve = sieves[xx];
+			if( sieve == null ) continue;
+			System.out.println("\tSieve " + sieve.getClass().toString());
+			ThreadUsage start = (stats != null ? ThreadUsage.now() : null);
+			int numBefore = currentTLinks.size();
+
+			// Run this sieve
+			List<TLink> newLinks;
+			if( sieve instanceof GraphSieve )
+				newLinks = ((GraphSieve)sieve).annotate(doc, currentTLinks);
+			else
+				newLinks = sieve.annotate(doc, currentTLinks.getLinks());
+			if( debug ) System.out.println("\t\t" + newLinks.size() + " new links.");
+//			if( debug ) System.out.println("\t\t" + newLinks);
+			if( stats != null ) stats[xx].addProposedCount(newLinks.size());
+
+			// Verify the links as non-conflicting.
+			int numRemoved = removeConflicts(currentTLinks, newLinks, debug);
+			if( debug ) System.out.println("\t\tRemoved " + numRemoved + " proposed links.");
+//			if( debug ) System.out.println("\t\t" + newLinks);
+			if( stats != null ) stats[xx].addRemovedCount(numRemoved);
+
+			if( newLinks.size() > 0 ) {
+				// Add the good links to our current list.
+				addProposedToCurrentList(sieveClasses[xx], newLinks, currentTLinks);//currentTLinks.addAll(newLinks);
+
+				// Run Closure
+				if( useClosure ) {
+					ThreadUsage closureStart = (stats != null ? ThreadUsage.now() : null);
+					List<TLink> closedLinks = closureExpand(sieveClasses[xx], currentTLinks, newLinks.size());
+					if( debug ) System.out.println("\t\tClosure produced " + closedLinks.size() + " links.");
+					//					if( debug ) System.out.println("\t\tclosed=" + closedLinks);
+					if( stats != null ) {
+						stats[xx].addClosureCount(closedLinks.size());
+						stats[xx].addUsage(doc.getDocname(), closureStart.since(start), ThreadUsage.now().since(closureStart), currentTLinks.size() - numBefore);
+					}
+				}
+				else if( stats != null )
+					stats[xx].addUsage(doc.getDocname(), ThreadUsage.now().since(start), null, currentTLinks.size() - numBefore);
+			}
+			else if( stats != null )
+				stats[xx].addUsage(doc.getDocname(), ThreadUsage.now().since(start), null, 0);
+			if( debug ) System.out.println("\t\tDoc now has " + currentTLinks.size() + " links.");
+		}
+
+		// Add links to InfoFile.
+		doc.addTlinks(currentTLinks.getLinks());
+//		if( debug ) System.out.println("Adding links: " + currentTLinks);
+	}
+
+	static void addProposedToCurrentList(String sieveName, List<TLink> proposed, LinkGraph current) {
+		for( TLink newlink : proposed ) {
+			TLink replaced = current.add(newlink, sieveName);
+			if( replaced != null )
+				System.out.println("MAIN WARNING: overwriting " + replaced + " with " + newlink);
+		}
+	}
+
+	/**
+ 	 * DESTRUCTIVE FUNCTION (proposedLinks will be modified)
+	 * Remove a link from the given list if another link already exists in the list
+	 * and covers the same event or time pair.
+	 * @param proposedLinks A list of TLinks to check for duplicates.
+	 * @param ids The document's event and time id index.
+	 * @return The number of duplicates found.
+	 */
+	static int removeDuplicatesAndInvalids(List<TLink> proposedLinks, IdIndex ids) {
+		if( proposedLinks == null || proposedLinks.size() < 2 )
+			return 0;
+
+		List<TLink> kept = new ArrayList<TLink>();
+		Set<Long> seenNew = new HashSet<Long>();
+
+		for( TLink proposed : proposedLinks ) {
+			// Make sure we have a valid link with 2 events!
+			if( proposed.getId1() == null || proposed.getId2() == null ||
+					proposed.getId1().length() == 0 || proposed.getId2().length() == 0 ) {
+				System.out.println("WARNING (proposed an invalid link): " + proposed);
+			}
+			// Remove any proposed links that are duplicates of already proposed links.
+			else if( seenNew.contains(ids.pairKey(proposed.getId1(), proposed.getId2())) ) {
+				System.out.println("WARNING (proposed the same link twice): " + proposed);
+			}
+			// Normal link. Keep it.
+			else {
+				seenNew.add(ids.pairKey(proposed.getId1(), proposed.getId2()));
+				seenNew.add(ids.pairKey(proposed.getId2(), proposed.getId1()));
+				kept.add(proposed);
+			}
+		}
+
+		int removed = proposedLinks.size() - kept.size();
+		if( removed > 0 ) {
+			proposedLinks.clear();
+			proposedLinks.addAll(kept);
+		}
+		return removed;
+	}
+
+	/**
+	 * DESTRUCTIVE FUNCTION (proposedLinks will be modified)
+	 * Removes any links from the proposed list that already have links between the same pairs in currentLinks.
+	 * @param currentLinks The current "good" links.
+	 * @param proposedLinks The list of proposed new links.
+	 * @param debug If true, report how many duplicates were removed.
+	 * @return The number of links removed.
+	 */
+	static int removeConflicts(LinkGraph currentLinks, List<TLink> proposedLinks, boolean debug) {
+		// Remove duplicates.
+		int duplicates = removeDuplicatesAndInvalids(proposedLinks, currentLinks.getIdIndex());
+		if( debug && duplicates > 0 ) System.out.println("\t\tRemoved " + duplicates + " duplicate proposed links.");
+
+		// Keep links whose pair is new, or only has a weak (VAGUE/NONE/UNKNOWN) link we can overwrite.
+		List<TLink> kept = new ArrayList<TLink>();
+		for( TLink proposed : proposedLinks )
+			if( currentLinks.canAdd(proposed) )
+				kept.add(proposed);
+
+		int removed = proposedLinks.size() - kept.size();
+		if( removed > 0 ) {
+			proposedLinks.clear();
+			proposedLinks.addAll(kept);
+		}
+		return removed + duplicates;
+	}
+
+	/**
+	 * DESTRUCTIVE FUNCTION (links may have new TLink objects appended to it)
+	 * Run transitive closure and add any inferred links.
+	 * Only the most recently appended links are propagated, since everything before them was
+	 * already closed by the previous call.
+	 * @param links The TLinks to expand with transitive closure.
+	 * @param numNew The number of links at the end of the list that were added since the last closure.
+	 * @return The list of new links from closure (these are already added to the given graph)
+	 */
+	private List<TLink> closureExpand(String sieveName, LinkGraph links, int numNew) {
+		List<TLink> newlinks = closure.computeClosure(links.getLinks(), links.size() - numNew, false);
+		addProposedToCurrentList(sieveName, newlinks, links);
+		return newlinks;
+	}
+
+	/**
+	 * @return New instances of this pipeline's sieves, in order.
+	 */
+	public Sieve[] createAllSieves() {
+		Sieve sieves[] = new Sieve[sieveClasses.length];
+		for( int xx = 0; xx < sieveClasses.length; xx++ ) {
+			sieves[xx] = createSieveInstance(sieveClasses[xx], wordnet);
+			System.out.println("Added sieve: " + sieveClasses[xx]);
+		}
+		return sieves;
+	}
+
+	/**
+	 * @return A copy of the sieve class names, in the order they run.
+	 */
+	public String[] getSieveClasses() {
+		return sieveClasses.clone();
+	}
+
+	Closure getClosure() { return closure; }
+	LexicalizedParser getParser() { return parser; }
+	GrammaticalStructureFactory getGrammaticalStructureFactory() { return gsf; }
+	ParseCache getParseCache() { return parseCache; }
+	TextEventClassifier getEventClassifier() { return eventClassifier; }
+	TimexClassifier getTimexClassifier() { return timexClassifier; }
+	WordNet getWordNet() { return wordnet; }
+
+	/**
+	 * Turns a string class name into an actual Sieve Instance of the class, and gives it the
+	 * WordNet instance if it uses one.
+	 * @return The new sieve, or null if it couldn't be created.
+	 */
+	public static Sieve createSieveInstance(String sieveClass, WordNet wordnet) {
+		Sieve sieve = createSieveInstance(sieveClass);
+		if( sieve instanceof WordNetSieve && wordnet != null )
+			((WordNetSieve)sieve).setWordNet(wordnet);
+		return sieve;
+	}
+
+	/**
+	 * Turns a string class name into an actual Sieve Instance of the class.
+	 * @return The new sieve, or null if it couldn't be created.
+	 */
+	public static Sieve createSieveInstance(String sieveClass) {
+		try {
+			Class<?> c = Class.forName("caevo.sieves." + sieveClass);
+			Sieve sieve = (Sieve)c.newInstance();
+			return sieve;
+		} catch (InstantiationException e) {
+			System.out.println("ERROR: couldn't load sieve: " + sieveClass);
+			e.printStackTrace();
+		} catch (IllegalAccessException e) {
+			System.out.println("ERROR: couldn't load sieve: " + sieveClass);
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			System.out.println("ERROR: couldn't load sieve: " + sieveClass);
+			e.printStackTrace();
+		} catch (ClassNotFoundException e) {
+			System.out.println("ERROR: couldn't load sieve: " + sieveClass);
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Reads a sieve list file: one sieve class name per line, with // comments and blank lines ignored.
+	 */
+	public static String[] readSieveList(String filename) throws IOException {
+		System.out.println("Reading sieve list from: " + filename);
+
+		List<String> sieveNames = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(new File(filename)));
+		String line;
+		while( (line = reader.readLine()) != null ) {
+			if( !line.matches("^\\s*$") && !line.matches("^\\s*//.*$") ) {
+				// Remove trailing comments if they exist.
+				if( line.indexOf("//") > -1 )
+					line = line.substring(0, line.indexOf("//"));
+				String name = line.trim();
+				sieveNames.add(name);
+			}
+		}
+		reader.close();
+
+		String[] arr = new String[sieveNames.size()];
+		return sieveNames.toArray(arr);
+	}
+}
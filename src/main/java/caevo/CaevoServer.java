@@ -0,0 +1,236 @@
+package caevo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server that keeps one initialized CaevoPipeline (parser, WordNet, closure rules,
+ * event classifiers and sieve models) in memory, so each request only pays for its own document.
+ *
+ * POST /raw      The request body is plain text.
+ * POST /rawxml   The request body is XML with <TEXT> and optional <DCT> elements, like rawxml mode.
+ *
+ * Optional query parameters:
+ *   dct=YYYY-MM-DD   The document creation time, with Main.dctHeuristic=setFixedDateAsDCT
+ *                    (default Main.dct). Other heuristics ignore it, as in raw and rawxml markup.
+ *   name=docname     The name of the document in the output (default "input.txt").
+ *
+ * The response is the SieveDocuments XML for the one document, the same as the .info.xml files
+ * that raw and rawxml markup write. Requests run concurrently on a fixed pool of worker threads,
+ * all sharing one CaevoPipeline.
+ *
+ * The server only listens on the loopback interface unless CaevoServer.host says otherwise.
+ * Request bodies over CaevoServer.maxBytes are refused, and rawxml bodies may not have a
+ * DOCTYPE, so a request can't pull in external entities (e.g. local files) through its XML.
+ *
+ * Start it with: java Main server
+ * Properties: CaevoServer.host (default 127.0.0.1), CaevoServer.port (default 8089),
+ *             CaevoServer.threads (default Main.threads), CaevoServer.maxBytes (default 10 MB)
+ */
+public class CaevoServer {
+  public static final String DEFAULT_HOST = "127.0.0.1";
+  public static final int DEFAULT_PORT = 8089;
+  public static final int DEFAULT_MAX_BYTES = 10 * 1024 * 1024;
+  private static final String DEFAULT_NAME = "input.txt";
+
+  private final CaevoPipeline pipeline;
+  private final String host;
+  private final int port;
+  private final int threads;
+  private final int maxBytes;
+  private HttpServer server;
+  private ExecutorService workers;
+  private final AtomicInteger numServed = new AtomicInteger();
+
+  /**
+   * A server on the loopback interface.
+   * @param pipeline The loaded pipeline shared by all requests.
+   * @param port The local port to listen on.
+   * @param threads The number of requests to process at once.
+   */
+  public CaevoServer(CaevoPipeline pipeline, int port, int threads) {
+    this(pipeline, DEFAULT_HOST, port, threads, DEFAULT_MAX_BYTES);
+  }
+
+  /**
+   * @param pipeline The loaded pipeline shared by all requests.
+   * @param host The address to listen on, e.g. 127.0.0.1 for local requests only.
+   * @param port The port to listen on, or 0 for any free port.
+   * @param threads The number of requests to process at once.
+   * @param maxBytes The largest request body accepted.
+   */
+  public CaevoServer(CaevoPipeline pipeline, String host, int port, int threads, int maxBytes) {
+    this.pipeline = pipeline;
+    this.host = host;
+    this.port = port;
+    this.threads = Math.max(1, threads);
+    this.maxBytes = maxBytes;
+  }
+
+  public void start() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(host), port), 0);
+    server.createContext("/raw", new MarkupHandler(false));
+    server.createContext("/rawxml", new MarkupHandler(true));
+    workers = Executors.newFixedThreadPool(threads);
+    server.setExecutor(workers);
+    server.start();
+    System.out.println("CaevoServer listening on " + host + ":" + getPort() + " with " + threads + " worker threads.");
+  }
+
+  /**
+   * @return The port the server listens on, which is chosen by the system if it was created with 0.
+   */
+  public int getPort() {
+    return server != null ? server.getAddress().getPort() : port;
+  }
+
+  /**
+   * Stops accepting requests, waiting up to the given number of seconds for current ones to finish.
+   */
+  public void stop(int waitSeconds) {
+    if( server != null ) server.stop(waitSeconds);
+    if( workers != null ) workers.shutdown();
+    System.out.println("CaevoServer stopped after " + numServed.get() + " documents.");
+  }
+
+  public int getNumServed() {
+    return numServed.get();
+  }
+
+  /**
+   * Parse and mark up one document. Safe to call from several threads at once.
+   * @param text The raw text, or the rawxml document if isXML is true.
+   * @param isXML True if the text is XML with <TEXT> and <DCT> elements.
+   * @param name The document name.
+   * @param dct The creation time for Main.dctHeuristic=setFixedDateAsDCT, or null for Main.dct.
+   * @return The marked up document.
+   */
+  public SieveDocument markup(String text, boolean isXML, String name, String dct) throws Exception {
+    SieveDocument doc;
+    if( isXML ) {
+      Document xml = newXMLFactory().newDocumentBuilder().parse(new InputSource(new StringReader(text)));
+      xml.getDocumentElement().normalize();
+      doc = pipeline.processRawXML(name, xml, dct);
+    }
+    else
+      doc = pipeline.process(name, text, dct);
+    numServed.incrementAndGet();
+    return doc;
+  }
+
+  /**
+   * @return A DOM parser factory for untrusted request bodies: DOCTYPEs are refused, and
+   *         external entities and DTDs are never loaded.
+   */
+  static DocumentBuilderFactory newXMLFactory() throws ParserConfigurationException {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+    factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+    factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+    factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+    factory.setXIncludeAware(false);
+    factory.setExpandEntityReferences(false);
+    return factory;
+  }
+
+  private class MarkupHandler implements HttpHandler {
+    private final boolean isXML;
+
+    MarkupHandler(boolean isXML) {
+      this.isXML = isXML;
+    }
+
+    public void handle(HttpExchange exchange) throws IOException {
+      try {
+        if( !exchange.getRequestMethod().equalsIgnoreCase("POST") ) {
+          respond(exchange, 405, "text/plain", "Use POST with the document in the request body.\n".getBytes("UTF-8"));
+          return;
+        }
+
+        Map<String,String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        String name = params.containsKey("name") ? params.get("name") : DEFAULT_NAME;
+        String text = readBody(exchange.getRequestBody(), maxBytes);
+        if( text == null ) {
+          respond(exchange, 413, "text/plain", ("ERROR: request body is over " + maxBytes + " bytes.\n").getBytes("UTF-8"));
+          return;
+        }
+
+        SieveDocument doc;
+        try {
+          doc = markup(text, isXML, name, params.get("dct"));
+        } catch( Exception ex ) {
+          System.out.println("ERROR: failed to mark up " + name);
+          ex.printStackTrace();
+          respond(exchange, 400, "text/plain", ("ERROR: " + ex + "\n").getBytes("UTF-8"));
+          return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SieveDocumentsWriter writer = new SieveDocumentsWriter(bytes);
+        writer.write(doc);
+        writer.close();
+        respond(exchange, 200, "application/xml; charset=UTF-8", bytes.toByteArray());
+      } finally {
+        exchange.close();
+      }
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int code, String contentType, byte[] body) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(code, body.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(body);
+    out.close();
+  }
+
+  /**
+   * @return The body as UTF-8 text, or null if it is longer than maxBytes.
+   */
+  private static String readBody(InputStream in, int maxBytes) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buf = new byte[8192];
+    int n;
+    while( (n = in.read(buf)) != -1 ) {
+      if( bytes.size() + n > maxBytes ) {
+        in.close();
+        return null;
+      }
+      bytes.write(buf, 0, n);
+    }
+    in.close();
+    return bytes.toString("UTF-8");
+  }
+
+  private static Map<String,String> parseQuery(String query) throws IOException {
+    Map<String,String> params = new HashMap<String,String>();
+    if( query == null ) return params;
+    for( String pair : query.split("&") ) {
+      int eq = pair.indexOf('=');
+      if( eq > 0 )
+        params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq+1), "UTF-8"));
+    }
+    return params;
+  }
+}
@@ -7,6 +7,7 @@ import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -17,6 +18,7 @@ import caevo.tlink.EventEventLink;
 import caevo.tlink.EventTimeLink;
 import caevo.tlink.TLink;
 import caevo.tlink.TimeTimeLink;
+import caevo.util.IdIndex;
 
 /**
  * Class to compute closure over a set of temporal relations.
@@ -25,7 +27,8 @@ import caevo.tlink.TimeTimeLink;
 public class Closure {
   static boolean report = true;
   static String rulePath = "/closure-sieve.dat";
-  HashMap<String,TLink.Type> rules[];
+  // rules[matchCase][relation1.ordinal()][relation2.ordinal()] = closed relation, or null if none.
+  TLink.Type rules[][][];
 
   public Closure() throws IOException { 
     this(Closure.class.getResource(rulePath));
@@ -44,7 +47,8 @@ public class Closure {
   // 2: B-A A-C
   // 3: B-A C-A
   private TLink.Type closeLinks(TLink.Type relation1, TLink.Type relation2, int matchCase) {
-    return rules[matchCase].get(relation1 + " " + relation2);
+    if( relation1 == null || relation2 == null ) return null;
+    return rules[matchCase][relation1.ordinal()][relation2.ordinal()];
   }
 
   /**
@@ -57,10 +61,8 @@ public class Closure {
     try {
       System.out.println("Loading closure rules from " + url);
 
-      rules = new HashMap[4];
-      for( int i = 0; i < 4; i++ ) {
-        rules[i] = new HashMap<String,TLink.Type>();
-      }
+      int numTypes = TLink.Type.values().length;
+      rules = new TLink.Type[4][numTypes][numTypes];
 
       while( in.ready() ) {
         String line = in.readLine();
@@ -81,7 +83,7 @@ public class Closure {
           TLink.Type closed = TLink.Type.valueOf(parts[2]);
 
 //          System.out.println("Adding closure rule: " + first + " " + second + " " + closed);
-          rules[matchCase].put(first + " " + second, closed);
+          rules[matchCase][first.ordinal()][second.ordinal()] = closed;
           numAdded++;
         }
       }
@@ -103,9 +105,9 @@ public class Closure {
    */    
   public boolean isConsistent(Collection<TLink> relations, TLink link) {
     // Hash what we've seen already
-    HashMap<String,TLink.Type> seen = new HashMap<String,TLink.Type>();
+    SeenLinks seen = new SeenLinks();
     for( TLink tlink : relations )
-      seen.put(tlink.getId1()+tlink.getId2(), tlink.getRelation());
+      seen.put(tlink.getId1(), tlink.getId2(), tlink.getRelation());
     
     int status = newLinkStatus(seen, link.getId1(), link.getId2(), link.getRelation());
 
@@ -121,12 +123,28 @@ public class Closure {
    * @return True if the closure is consistent, false if a conflict occurred.
    */
   public boolean computeClosure(List<TLink> relations, List<TLink> newRelations, boolean prints) {
+    return computeClosure(relations, 0, newRelations, prints);
+  }
+
+  /**
+   * Incremental version of closure. The first numClosed relations are assumed to already
+   * be closed with respect to each other (e.g., the output of a previous closure call), so
+   * they are never paired with one another. Only pairs that involve at least one of the
+   * relations after numClosed are checked, and the new links from those pairs are propagated
+   * until nothing more is added. Gives the same links as full closure over the whole list.
+   * @param relations A List of TLinks from which to compute closure.
+   * @param numClosed The number of relations at the front of the List that are already closed.
+   * @param newRelations The List in which to append any new closure links.
+   * @return True if the closure is consistent, false if a conflict occurred.
+   */
+  public boolean computeClosure(List<TLink> relations, int numClosed, List<TLink> newRelations, boolean prints) {
     boolean noneAdded = false;
-    TLink tlink1 = null, tlink2 = null;
-    String eid1, eid2, B, C;
-    int matchCase = 0;
-    int size = 0, oldsize;
+    TLink tlink1 = null;
+    String eid1, eid2;
+    // Each pass only pairs links against those added since the previous pass.
+    int size = Math.max(0, Math.min(numClosed, relations.size())), oldsize;
     int start;
+    int indexed = 0;
     boolean conflict = false;
 
     if( prints ) report = true;
@@ -135,83 +153,46 @@ public class Closure {
     if( report ) System.out.println("Computing Closure (" + relations.size() + " relations)");
 
     // Save what we've seen already
-    HashMap<String,TLink.Type> seen = new HashMap<String,TLink.Type>();
+    SeenLinks seen = new SeenLinks();
     for( TLink tlink : relations )
-      seen.put(tlink.getId1()+tlink.getId2(), tlink.getRelation());
+      seen.put(tlink.getId1(), tlink.getId2(), tlink.getRelation());
+
+    // The positions of the links that touch each event/time, in increasing order.
+    // Only links that share an endpoint can close, so we never scan all pairs.
+    List<List<Integer>> nodeIndex = new ArrayList<List<Integer>>();
 
     while (!noneAdded) {
       //System.out.println("iter = " + iter);
       oldsize = size;
       size = relations.size();
+
+      // Index the links added since the last pass.
+      for( ; indexed < size; indexed++ )
+        indexLink(nodeIndex, seen.ids, relations.get(indexed), indexed);
+
       for (int i = 0; i < size; i++) {
         if (i >= oldsize) start = i + 1;
         else start = oldsize;
         tlink1 = relations.get(i);
-        TLink.Type rel1 = tlink1.getRelation();
         eid1 = tlink1.getId1();
         eid2 = tlink1.getId2();
         if( report ) System.out.println("Starting with tlink1 = " + tlink1);
-        
-        for (int j = start; j < size; j++) {
-          tlink2 = relations.get(j);
-          TLink.Type rel2 = tlink2.getRelation();
-          B = null;
-          C = null;
-          matchCase = -1;
-          if( report ) System.out.println("\ttlink2 = " + tlink2);
-          
-          // Find which out of 4 transitive patterns to use
-
-          // A-B-Rel, A-C-Rel
-          if( eid1.equals(tlink2.getId1()) && !eid2.equals(tlink2.getId2()) ) {
-            matchCase = 0;
-            B = eid2;
-            C = tlink2.getId2();
-          }
-          // A-B-Rel, C-A-Rel
-          else if( eid1.equals(tlink2.getId2()) && !eid2.equals(tlink2.getId1()) ) {
-            matchCase = 1;
-            B = eid2;
-            C = tlink2.getId1();
-          } 
-          // B-A-Rel, A-C-Rel
-          else if( eid2.equals(tlink2.getId1()) && !eid1.equals(tlink2.getId2()) ) {
-            matchCase = 2;
-            B = eid1;
-            C = tlink2.getId2();
-          } 
-          //B-A-Rel, C-A-Rel
-          else if( eid2.equals(tlink2.getId2()) && !eid1.equals(tlink2.getId1()) ) {
-            matchCase = 3;
-            B = eid1;
-            C = tlink2.getId1();
-          }
-
-//          System.out.println("\tB = " + B + " C = " + C + " matchCase = " + matchCase);
-          
-          // Ignore closing trivial relations such as A-A-INCL, A-A-SIMUL
-          if( eid1.equals(eid2) &&
-              (rel1 == TLink.Type.SIMULTANEOUS || rel1 == TLink.Type.INCLUDES) ) {
-            matchCase = -1;
-          } 
-          else if( tlink2.getId2().equals(tlink2.getId1()) &&
-              (rel2 == TLink.Type.SIMULTANEOUS || rel2 == TLink.Type.INCLUDES ) ) {
-            matchCase = -1;
-          }
 
-          if( B != null && C != null && matchCase != -1 ) {
-//            System.out.println("Checking B=" + B + " C=" + C + " case=" + matchCase);
-            // Find the relation to close it	  
-            TLink.Type newrel = closeLinks(rel1, rel2, matchCase);
-//            System.out.println(rel1 + " " + rel2 + " newrel=" + newrel);
-            if( newrel != null ) {
-              if( report ) System.out.println("New link! " + newrel + "(from B=" + B + " C=" + C + " matchCase=" + matchCase + ")");
-              TLink newLink = addlink(seen, relations, B, C, newrel);
-              // If this new link conflicts, remember that
-              if( newLink == null ) conflict = true;
-              else newRelations.add(newLink);
-            }
-          }
+        // Walk the links on both endpoints in increasing position, the same order as a full scan.
+        List<Integer> first = nodeIndex.get(seen.ids.intern(eid1));
+        List<Integer> second = (eid1.equals(eid2) ? null : nodeIndex.get(seen.ids.intern(eid2)));
+        int a = firstIndexAtLeast(first, start);
+        int b = firstIndexAtLeast(second, start);
+        while( true ) {
+          int ja = (first != null && a < first.size() ? first.get(a) : size);
+          int jb = (second != null && b < second.size() ? second.get(b) : size);
+          int j = Math.min(ja, jb);
+          if( j >= size ) break;
+          if( ja == j ) a++;
+          if( jb == j ) b++;
+
+          if( closePair(seen, relations, newRelations, tlink1, relations.get(j)) )
+            conflict = true;
         }
       }
       noneAdded = (relations.size() == size);
@@ -220,6 +201,102 @@ public class Closure {
     return conflict;
   }
 
+  /**
+   * Applies the transitivity rules to two links, and adds the new closed link (if any)
+   * to both relations and newRelations.
+   * @return True if the closed link conflicted with an existing relation, false otherwise.
+   */
+  private boolean closePair(SeenLinks seen, List<TLink> relations, List<TLink> newRelations, 
+      TLink tlink1, TLink tlink2) {
+    TLink.Type rel1 = tlink1.getRelation();
+    TLink.Type rel2 = tlink2.getRelation();
+    String eid1 = tlink1.getId1();
+    String eid2 = tlink1.getId2();
+    String B = null;
+    String C = null;
+    int matchCase = -1;
+    if( report ) System.out.println("\ttlink2 = " + tlink2);
+
+    // Find which out of 4 transitive patterns to use
+
+    // A-B-Rel, A-C-Rel
+    if( eid1.equals(tlink2.getId1()) && !eid2.equals(tlink2.getId2()) ) {
+      matchCase = 0;
+      B = eid2;
+      C = tlink2.getId2();
+    }
+    // A-B-Rel, C-A-Rel
+    else if( eid1.equals(tlink2.getId2()) && !eid2.equals(tlink2.getId1()) ) {
+      matchCase = 1;
+      B = eid2;
+      C = tlink2.getId1();
+    } 
+    // B-A-Rel, A-C-Rel
+    else if( eid2.equals(tlink2.getId1()) && !eid1.equals(tlink2.getId2()) ) {
+      matchCase = 2;
+      B = eid1;
+      C = tlink2.getId2();
+    } 
+    //B-A-Rel, C-A-Rel
+    else if( eid2.equals(tlink2.getId2()) && !eid1.equals(tlink2.getId1()) ) {
+      matchCase = 3;
+      B = eid1;
+      C = tlink2.getId1();
+    }
+
+//    System.out.println("\tB = " + B + " C = " + C + " matchCase = " + matchCase);
+
+    // Ignore closing trivial relations such as A-A-INCL, A-A-SIMUL
+    if( eid1.equals(eid2) &&
+        (rel1 == TLink.Type.SIMULTANEOUS || rel1 == TLink.Type.INCLUDES) ) {
+      matchCase = -1;
+    } 
+    else if( tlink2.getId2().equals(tlink2.getId1()) &&
+        (rel2 == TLink.Type.SIMULTANEOUS || rel2 == TLink.Type.INCLUDES ) ) {
+      matchCase = -1;
+    }
+
+    if( B != null && C != null && matchCase != -1 ) {
+//      System.out.println("Checking B=" + B + " C=" + C + " case=" + matchCase);
+      // Find the relation to close it	  
+      TLink.Type newrel = closeLinks(rel1, rel2, matchCase);
+//      System.out.println(rel1 + " " + rel2 + " newrel=" + newrel);
+      if( newrel != null ) {
+        if( report ) System.out.println("New link! " + newrel + "(from B=" + B + " C=" + C + " matchCase=" + matchCase + ")");
+        TLink newLink = addlink(seen, relations, B, C, newrel);
+        // If this new link conflicts, remember that
+        if( newLink == null ) return true;
+        else newRelations.add(newLink);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Records the link's position under both of its endpoints. A link from a node to itself
+   * is only recorded once.
+   */
+  private void indexLink(List<List<Integer>> nodeIndex, IdIndex ids, TLink link, int position) {
+    addToIndex(nodeIndex, ids.intern(link.getId1()), position);
+    if( !link.getId1().equals(link.getId2()) )
+      addToIndex(nodeIndex, ids.intern(link.getId2()), position);
+  }
+
+  private void addToIndex(List<List<Integer>> nodeIndex, int id, int position) {
+    while( nodeIndex.size() <= id )
+      nodeIndex.add(new ArrayList<Integer>());
+    nodeIndex.get(id).add(position);
+  }
+
+  /**
+   * @return The index of the first position in the sorted list that is >= start, or the list size if none.
+   */
+  private int firstIndexAtLeast(List<Integer> positions, int start) {
+    if( positions == null ) return 0;
+    int index = Collections.binarySearch(positions, start);
+    return (index >= 0 ? index : -(index + 1));
+  }
+
   /**
    * Computes closure over the given relations, and returns a list of new links created by the closure rules.
    * @param relations List of known relations.
@@ -237,9 +314,21 @@ public class Closure {
    * @return A list of new relations computed from transitivity rules.
    */
   public List<TLink> computeClosure(List<TLink> relations, boolean debug) {
+    return computeClosure(relations, 0, debug);
+  }
+
+  /**
+   * Computes closure after new relations were appended to an already closed list, keeps the
+   * given List unchanged, and returns a new list of closed relations.
+   * @param relations The list of relations from which we compute closure.
+   * @param numClosed The number of relations at the front of the list that are already closed.
+   * @param debug
+   * @return A list of new relations computed from transitivity rules.
+   */
+  public List<TLink> computeClosure(List<TLink> relations, int numClosed, boolean debug) {
     List<TLink> cloned = new ArrayList<TLink>(relations);
     List<TLink> newRelations = new ArrayList<TLink>();
-    computeClosure(cloned, newRelations, debug);
+    computeClosure(cloned, numClosed, newRelations, debug);
     return newRelations;
   }
 
@@ -259,7 +348,7 @@ public class Closure {
    * @param relation The type of relation between A and B
    * @return The new link that was added to the relations list. null if the link was duplicate, or conflicted.
    */
-  private TLink addlink(HashMap<String,TLink.Type> seen, List<TLink> relations, String A, String B, TLink.Type rel) {
+  private TLink addlink(SeenLinks seen, List<TLink> relations, String A, String B, TLink.Type rel) {
     int status = newLinkStatus(seen, A, B, rel);
     
     if( status == 0 ) {
@@ -277,7 +366,7 @@ public class Closure {
       else link = new EventEventLink(A, B, rel, true);
 
       relations.add(link);
-      seen.put(A+B,rel);
+      seen.put(A, B, rel);
 
       //      System.out.println("Added link " + A + " " + relation + " " + B);
       return link;
@@ -291,10 +380,10 @@ public class Closure {
    * 1: already exists, or is consistent with existing relation A-B
    * 2: conflicts with existing relation between A-B
    */
-  private int newLinkStatus(HashMap<String,TLink.Type> seen, String A, String B, TLink.Type rel) {
+  private int newLinkStatus(SeenLinks seen, String A, String B, TLink.Type rel) {
     // Make sure we don't already have a relation
-    if( seen.containsKey(A+B) ) {
-      TLink.Type current = seen.get(A+B);
+    if( seen.containsKey(A, B) ) {
+      TLink.Type current = seen.get(A, B);
       if( current != rel ) {
 
         // some relation clashes are ok
@@ -304,15 +393,15 @@ public class Closure {
 
         if( report ) {
           System.err.println("Closure conflict: " + A + " " + B);
-          System.err.println("...old relation " + A + " " + seen.get(A+B) + " " + B + " adding new relation " + A + " " + rel + " " + B);
+          System.err.println("...old relation " + A + " " + seen.get(A, B) + " " + B + " adding new relation " + A + " " + rel + " " + B);
         }
         return 2;
       } 
       else return 1; // exact same relation already exists
     }
     // Make sure the inverse relation doesn't exist
-    else if( seen.containsKey(B+A) ) {
-      TLink.Type reverse = seen.get(B+A);
+    else if( seen.containsKey(B, A) ) {
+      TLink.Type reverse = seen.get(B, A);
       TLink.Type relReversed = TLink.invertRelation(rel);
       // inverse simultaneous relations are harmless, just ignore
       if( reverse == relReversed ||
@@ -325,7 +414,7 @@ public class Closure {
 
       if( report ) {
         System.err.println("Closure conflict: " + A + " " + B);
-        System.err.println("...old relation " + B + " " + seen.get(B+A) + " " + A + " adding new relation " + A + " " + rel + " " + B);
+        System.err.println("...old relation " + B + " " + seen.get(B, A) + " " + A + " adding new relation " + A + " " + rel + " " + B);
       }
       return 2;
     }
@@ -403,10 +492,26 @@ public class Closure {
     else return false;
   }
 
+  /**
+   * The relation of every ordered id pair seen so far, keyed by dense int pairs so that
+   * no id1+id2 Strings are built (and "ei1"+"ei23" cannot collide with "ei12"+"ei3").
+   */
+  private static class SeenLinks {
+    IdIndex ids = new IdIndex();
+    HashMap<Long,TLink.Type> relations = new HashMap<Long,TLink.Type>();
+
+    void put(String A, String B, TLink.Type rel) { relations.put(ids.pairKey(A, B), rel); }
+    boolean containsKey(String A, String B) { return relations.containsKey(ids.pairKey(A, B)); }
+    TLink.Type get(String A, String B) { return relations.get(ids.pairKey(A, B)); }
+  }
+
   public void printRules() {
     for( int i = 0; i < rules.length; i++ ) {
       System.out.println("i=" + i);
-      System.out.println(rules[i]);
+      for( TLink.Type first : TLink.Type.values() )
+        for( TLink.Type second : TLink.Type.values() )
+          if( rules[i][first.ordinal()][second.ordinal()] != null )
+            System.out.println(first + " " + second + "=" + rules[i][first.ordinal()][second.ordinal()]);
     }
   }
 }
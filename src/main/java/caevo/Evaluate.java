@@ -250,6 +250,21 @@ public class Evaluate {
 	 * @param sieveStats A map from sieve names to their SieveStats objects.
 	 */
 	public static void evaluate(SieveDocuments goldDocs, SieveDocuments guessedDocs, String[] sieveNames, Map<String,SieveStats> sieveStats) {
+		if (goldDocs == null)
+			return;
+
+		// Loop over documents.
+		Evaluation evaluation = new Evaluation();
+		for( SieveDocument guessedDoc : guessedDocs.getDocuments() )
+			evaluation.addDocument(goldDocs.getDocument(guessedDoc.getDocname()), guessedDoc, sieveStats);
+		printEvaluation(evaluation, sieveNames, sieveStats);
+	}
+
+	/**
+	 * The running counts of evaluate(), added one document at a time, so documents can be
+	 * evaluated as they finish instead of keeping the whole corpus for the end of the run.
+	 */
+	public static class Evaluation {
 		Counter<String> guessCounts = new ClassicCounter<String>();
 		Counter<TLink.Type> goldLabelCounts = new ClassicCounter<TLink.Type>();
 		Counter<String> breakdownNumCorrect = new ClassicCounter<String>();
@@ -261,16 +276,16 @@ public class Evaluate {
 		int numMissed = 0;
 		int numMissedNonVague = 0;
 
-		if (goldDocs == null)
-			return;
-		
-		// Make sure all TLinks follow text order and invert relations that don't.
-//		normalizeAllTlinksByTextOrder(goldDocs);
-		normalizeAllTlinksByTextOrder(guessedDocs);
-		
-		// Loop over documents.
-		for( SieveDocument guessedDoc : guessedDocs.getDocuments() ) {
-			SieveDocument goldDoc = goldDocs.getDocument(guessedDoc.getDocname());
+		/**
+		 * Score one document's guessed links against its gold links. The guessed links are put in
+		 * text order first, as normalizeAllTlinksByTextOrder() does.
+		 */
+		public void addDocument(SieveDocument goldDoc, SieveDocument guessedDoc, Map<String,SieveStats> sieveStats) {
+			// Make sure all TLinks follow text order and invert relations that don't.
+			SieveDocuments single = new SieveDocuments();
+			single.addDocument(guessedDoc);
+			normalizeAllTlinksByTextOrder(single);
+
 			Set<String> seenGoldLinks = new HashSet<String>();
 
 //			System.out.println("evaluating " + guessedDoc.getDocname());
@@ -341,7 +356,23 @@ public class Evaluate {
 				}
 			}
 		}
-		
+	}
+
+	/**
+	 * Print the per-sieve stats and the full results of the documents added to the evaluation.
+	 */
+	public static void printEvaluation(Evaluation evaluation, String[] sieveNames, Map<String,SieveStats> sieveStats) {
+		Counter<String> guessCounts = evaluation.guessCounts;
+		Counter<TLink.Type> goldLabelCounts = evaluation.goldLabelCounts;
+		Counter<String> breakdownNumCorrect = evaluation.breakdownNumCorrect;
+		Counter<String> breakdownNumIncorrect = evaluation.breakdownNumIncorrect;
+		int numCorrect = evaluation.numCorrect;
+		int numCorrectNonVague = evaluation.numCorrectNonVague;
+		int numIncorrect = evaluation.numIncorrect;
+		int numIncorrectNonVague = evaluation.numIncorrectNonVague;
+		int numMissed = evaluation.numMissed;
+		int numMissedNonVague = evaluation.numMissedNonVague;
+
 		// Print performance for each individual sieve.
 		System.out.println("\nBrief Sieve Stats");
 		for( String sieveName : sieveNames )
@@ -12,11 +12,16 @@ import edu.stanford.nlp.trees.PennTreebankLanguagePack;
 import edu.stanford.nlp.trees.TreebankLanguagePack;
 import edu.stanford.nlp.util.StringUtils;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Controls all Sieve processing including TLink annotating, closure, and the core programming.
@@ -40,6 +45,9 @@ import java.util.*;
  * java Main <file-or-dir> raw
  * - Takes a text file and runs the NLP pipeline, then our event/timex/tlink extraction.
  *
+ * java Main server
+ * - Loads everything once and serves raw text or rawxml markup over HTTP. See CaevoServer.
+ *
  * @author chambers
  */
 public class Main {
@@ -47,22 +55,30 @@ public class Main {
     
 	private TextEventClassifier eventClassifier;
 	private TimexClassifier timexClassifier;
-	public static WordNet wordnet;
 	
 	SieveDocuments thedocs;
 	SieveDocuments thedocsUnchanged; // for evaluating if TLinks are in the input
 	Closure closure;
 	String outpath = "sieve-output.xml";
+	// Per-sieve time and memory report, written to the sieve stats directory after each run.
+	static final String SIEVE_TIMING_FILE = "sieve-timing.csv";
 	boolean debug = true;
 	boolean useClosure = true;
 	boolean force24hrDCT = true;
 	String dctHeuristic = "none";
 	String infopath = null;
+	int threads = 1; // number of documents to run through the sieves concurrently
+	int parseThreads = 1; // number of sentences to parse concurrently in raw text markup
+	int trainThreads = 1; // number of sieves (and classifiers within a sieve) to train concurrently
+	boolean streamInput = false; // runSieves() reads the -info file one document at a time
+	// Commands that need the whole -info file in memory, so it is read up front even when streaming.
+	static final String[] LOAD_ALL_COMMANDS = { "gauntlet", "parsed", "trainall" };
 
 	// parser 
 	LexicalizedParser parser;
 	TreebankLanguagePack tlp;
 	GrammaticalStructureFactory gsf;
+	ParseCache parseCache; // sentence parses from earlier runs, or null (Main.parseCache)
 	
 	// Which dataset do we load?
   public static enum DatasetType { TRAIN, DEV, TEST, ALL };
@@ -70,6 +86,9 @@ public class Main {
 	
 	// List the sieve class names in your desired order.
 	private String[] sieveClasses;
+
+	// The loaded models and the per-document sieve loop.
+	private CaevoPipeline pipeline;
     
 	
 	/**
@@ -84,7 +103,11 @@ public class Main {
 		if( cmdlineProps.containsKey("info") )
 			infopath = cmdlineProps.getProperty("info");
         
-		if( infopath != null ) {
+		// Streaming reads the file later, in runSieves().
+		String command = (args.length > 0 ? args[args.length-1] : null);
+		if( streamInput && loadsAllDocuments(command) )
+			System.out.println("WARNING: Main.stream does not apply to " + command + ", reading all of " + infopath);
+		if( infopath != null && (!streamInput || loadsAllDocuments(command)) ) {
 			System.out.println("Checking for infofile at " + infopath);
 			thedocs = new SieveDocuments(infopath);
 			thedocsUnchanged = new SieveDocuments(infopath);
@@ -99,6 +122,16 @@ public class Main {
 		init();
 	}
 	
+	/**
+	 * @return True if the command line's command uses the whole -info file at once.
+	 */
+	private static boolean loadsAllDocuments(String command) {
+		for( String name : LOAD_ALL_COMMANDS )
+			if( name.equalsIgnoreCase(command) )
+				return true;
+		return false;
+	}
+
 	/**
 	 * Empty Constructor.
 	 */
@@ -127,105 +160,61 @@ public class Main {
 			dataset = DatasetType.valueOf(CaevoProperties.getString("Main.dataset", dataset.toString()).toUpperCase());
 			force24hrDCT = CaevoProperties.getBoolean("Main.force24hrdct", force24hrDCT);
 			dctHeuristic = CaevoProperties.getString("Main.dctHeuristic", dctHeuristic);
+			threads = CaevoProperties.getInt("Main.threads", threads);
+			parseThreads = CaevoProperties.getInt("Main.parseThreads", parseThreads);
+			trainThreads = CaevoProperties.getInt("Main.trainThreads", trainThreads);
+			streamInput = CaevoProperties.getBoolean("Main.stream", streamInput);
 		} catch (IOException e) { e.printStackTrace(); }
 	}
 	
 	private void init() {
 		
-		// Initialize the transitive closure code.
+		// Load the sieve list.
+		sieveClasses = loadSieveList();
+
+		// Load closure, WordNet, the parser and the event/timex classifiers.
 		try {
-			closure = new Closure();
+			pipeline = new CaevoPipeline(sieveClasses);
 		} catch( IOException ex ) {
-			System.out.println("ERROR: couldn't load Closure utility.");
+			System.out.println("ERROR: couldn't initialize the pipeline.");
 			ex.printStackTrace();
 			System.exit(1);
 		}
-		
-		// Load WordNet for any and all sieves.
-		wordnet = new WordNet();
-		
-		// Load the sieve list.
-		sieveClasses = loadSieveList();
-		
-		// Initialize the parser.
-		parser = Ling.createParser(serializedGrammar);
-		if( parser == null ) {
-			System.out.println("Failed to create parser from " + serializedGrammar);
-			System.exit(1);
-		}
+		closure = pipeline.getClosure();
+		parser = pipeline.getParser();
 		tlp = new PennTreebankLanguagePack();
-		gsf = tlp.grammaticalStructureFactory();
-		
-		timexClassifier = new TimexClassifier();
-		
-		eventClassifier = new TextEventClassifier(wordnet);
-		eventClassifier.loadClassifiers();
+		gsf = pipeline.getGrammaticalStructureFactory();
+		parseCache = pipeline.getParseCache();
+		timexClassifier = pipeline.getTimexClassifier();
+		eventClassifier = pipeline.getEventClassifier();
 		
 		System.out.println("Dataset:\t" + dataset);
 		System.out.println("Using Closure:\t" + useClosure);
 		System.out.println("Debug:\t\t" + debug);
+		if( threads > 1 ) System.out.println("Threads:\t" + threads);
+		if( threads > 1 && streamInput ) System.out.println("WARNING: Main.threads is not used with Main.stream, documents run one at a time.");
+		if( parseThreads > 1 ) System.out.println("Parse threads:\t" + parseThreads);
+		if( parseCache != null ) System.out.println("Parse cache:\t" + parseCache.getDirectory());
 	}
 
 	private String[] loadSieveList() {
 		String filename = System.getProperty("sieves");
-		if( filename == null ) filename = "default.sieves";
+		if( filename == null ) filename = CaevoPipeline.DEFAULT_SIEVE_LIST;
 
-		System.out.println("Reading sieve list from: " + filename);
-
-		List<String> sieveNames = new ArrayList<String>();
 		try {
-			BufferedReader reader = new BufferedReader(new FileReader(new File(filename)));
-			String line;
-			while( (line = reader.readLine()) != null ) {
-				if( !line.matches("^\\s*$") && !line.matches("^\\s*//.*$") ) {
-					// Remove trailing comments if they exist.
-					if( line.indexOf("//") > -1 )
-						line = line.substring(0, line.indexOf("//"));
-					String name = line.trim();
-					sieveNames.add(name);
-				}
-			}
-			reader.close();
+			return CaevoPipeline.readSieveList(filename);
 		} catch( Exception ex ) {
 			System.out.println("ERROR: no sieve list found");
 			ex.printStackTrace();
 			System.exit(1);
 		}
-
-		String[] arr = new String[sieveNames.size()];
-		return sieveNames.toArray(arr);
-	}
-
-	/**
-	 * Turns a string class name into an actual Sieve Instance of the class.
-	 * @param sieveClass
-	 * @return
-	 */
-	private Sieve createSieveInstance(String sieveClass) {
-		try {
-			Class<?> c = Class.forName("caevo.sieves." + sieveClass);
-			Sieve sieve = (Sieve)c.newInstance();
-			return sieve;
-		} catch (InstantiationException e) {
-			System.out.println("ERROR: couldn't load sieve: " + sieveClass);
-			e.printStackTrace();
-		} catch (IllegalAccessException e) {
-			System.out.println("ERROR: couldn't load sieve: " + sieveClass);
-			e.printStackTrace();
-		} catch (IllegalArgumentException e) {
-			System.out.println("ERROR: couldn't load sieve: " + sieveClass);
-			e.printStackTrace();
-		} catch (ClassNotFoundException e) {
-			System.out.println("ERROR: couldn't load sieve: " + sieveClass);
-			e.printStackTrace();
-		}
 		return null;
 	}
-	
+
 	private Sieve[] createAllSieves(String[] stringClasses) {
 		Sieve sieves[] = new Sieve[stringClasses.length];
 		for( int xx = 0; xx < stringClasses.length; xx++ ) {
-			sieves[xx] = createSieveInstance(stringClasses[xx]);
+			sieves[xx] = CaevoPipeline.createSieveInstance(stringClasses[xx], pipeline.getWordNet());
 			System.out.println("Added sieve: " + stringClasses[xx]);
 		}
 		return sieves;
@@ -236,7 +225,10 @@ public class Main {
 	 * Run all sieves!! On all documents!!
 	 */
 	public void runSieves() {
-		runSieves(thedocs);
+		if( streamInput && infopath != null && thedocs == null )
+			runSievesStreaming(infopath);
+		else
+			runSieves(thedocs);
 	}
 
 	/**
@@ -246,68 +238,28 @@ public class Main {
 		// Remove all TLinks because we will add our own.
 		thedocs.removeAllTLinks();
 
-		// Start with zero links.
-		List<TLink> currentTLinks = new ArrayList<TLink>();
-		Map<String,TLink> currentTLinksHash = new HashMap<String,TLink>();
-        
 		// Create all the sieves first.
 		Sieve sieves[] = createAllSieves(sieveClasses);
 
 		// Statistics collection.
-		SieveStats stats[] = new SieveStats[sieveClasses.length];
+		PrintStream usageCSV = SieveStats.openUsageCSV(SIEVE_TIMING_FILE);
+		SieveStats stats[] = createAllSieveStats(usageCSV);
 		Map<String, SieveStats> sieveNameToStats = new HashMap<String, SieveStats>();
-		for( int i = 0; i < sieveClasses.length; i++ ) {
-			stats[i] = new SieveStats(sieveClasses[i]);
+		for( int i = 0; i < sieveClasses.length; i++ )
 			sieveNameToStats.put(sieveClasses[i], stats[i]);
-		}
 		
 		// Data
 		SieveDocuments docs = getDataset(dataset, thedocs);
         
 		// Do each file independently.
-		for( SieveDocument doc : docs.getDocuments() ) {
-			System.out.println("Processing " + doc.getDocname() + "...");
-//			System.out.println("Number of gold links: " + thedocsUnchanged.getDocument(doc.getDocname()).getTlinks().size());
-			
-			// Loop over the sieves in order.
-			for( int xx = 0; xx < sieves.length; xx++ ) {
-				Sieve sieve = sieves[xx];
-				if( sieve == null ) continue;
-				System.out.println("\tSieve " + sieve.getClass().toString());
-                
-				// Run this sieve
-				List<TLink> newLinks = sieve.annotate(doc, currentTLinks);
-				if( debug ) System.out.println("\t\t" + newLinks.size() + " new links.");
-//				if( debug ) System.out.println("\t\t" + newLinks);
-				stats[xx].addProposedCount(newLinks.size());
-				
-				// Verify the links as non-conflicting.
-				int numRemoved = removeConflicts(currentTLinksHash, newLinks);
-				if( debug ) System.out.println("\t\tRemoved " + numRemoved + " proposed links.");
-//				if( debug ) System.out.println("\t\t" + newLinks);
-				stats[xx].addRemovedCount(numRemoved);
-				
-				if( newLinks.size() > 0 ) {
-					// Add the good links to our current list.
-					addProposedToCurrentList(sieveClasses[xx], newLinks, currentTLinks, currentTLinksHash);//currentTLinks.addAll(newLinks);
-
-					// Run Closure
-					if( useClosure ) {
-						List<TLink> closedLinks = closureExpand(sieveClasses[xx], currentTLinks, currentTLinksHash);
-						if( debug ) System.out.println("\t\tClosure produced " + closedLinks.size() + " links.");
-						//					if( debug ) System.out.println("\t\tclosed=" + closedLinks);
-						stats[xx].addClosureCount(closedLinks.size());
-					}
-				}
-				if( debug ) System.out.println("\t\tDoc now has " + currentTLinks.size() + " links.");
-			}
-			
-			// Add links to InfoFile.
-			doc.addTlinks(currentTLinks);
-//			if( debug ) System.out.println("Adding links: " + currentTLinks);
-			currentTLinks.clear();
-			currentTLinksHash.clear();
+		if( threads > 1 )
+			runSievesParallel(docs.getDocuments(), sieves, stats);
+		else {
+			for( SieveDocument doc : docs.getDocuments() )
+				runSievesOnDocument(doc, sieves, stats);
 		}
+		SieveStats.closeUsageCSV(stats, usageCSV);
+		printCacheStats();
 		
 		try {
 			if (CaevoProperties.getBoolean("Main.debug")) {
@@ -320,6 +272,145 @@ public class Main {
 		if( thedocsUnchanged != null )
 			Evaluate.evaluate(thedocsUnchanged, docs, sieveClasses, sieveNameToStats);
 	}
+
+	/**
+	 * Same as runSieves(SieveDocuments), but reads the given SieveDocuments XML file one document
+	 * at a time and runs the sieves on each document as soon as it is read. Each finished document
+	 * is written to the output (with Main.debug) and added to the evaluation counts, then dropped,
+	 * so only the current document is in memory. Documents run one at a time; Main.threads is
+	 * not used.
+	 * @param path Path to the SieveDocuments XML file.
+	 */
+	public void runSievesStreaming(String path) {
+		Sieve sieves[] = createAllSieves(sieveClasses);
+		PrintStream usageCSV = SieveStats.openUsageCSV(SIEVE_TIMING_FILE);
+		SieveStats stats[] = createAllSieveStats(usageCSV);
+		Map<String, SieveStats> sieveNameToStats = new HashMap<String, SieveStats>();
+		for( int i = 0; i < sieveClasses.length; i++ )
+			sieveNameToStats.put(sieveClasses[i], stats[i]);
+
+		Evaluate.Evaluation evaluation = new Evaluate.Evaluation();
+		int numDocs = 0;
+		try {
+			boolean writeOutput = CaevoProperties.getBoolean("Main.debug", false);
+			SieveDocumentsWriter writer = null;
+			if( writeOutput ) {
+				System.out.println("Writing output: " + outpath);
+				writer = new SieveDocumentsWriter(outpath);
+			}
+
+			System.out.println("Streaming documents from " + path);
+			SieveDocumentsReader reader = new SieveDocumentsReader(path);
+			for( SieveDocument doc : reader ) {
+				// Same dataset split and DCT fixes as the non-streaming run.
+				SieveDocuments single = new SieveDocuments();
+				single.addDocument(doc);
+				List<SieveDocument> inSet = getDataset(dataset, single).getDocuments();
+				if( inSet == null || inSet.isEmpty() )
+					continue;
+
+				// Keep the gold links for evaluation, then remove them because we will add our own.
+				List<TLink> goldLinks = (doc.getTlinks() == null ? new ArrayList<TLink>() : new ArrayList<TLink>(doc.getTlinks()));
+				doc.removeTlinks();
+				SieveDocument goldDoc = new SieveDocument(doc.getDocname());
+				goldDoc.addTlinks(goldLinks);
+
+				runSievesOnDocument(doc, sieves, stats);
+				if( writer != null ) writer.write(doc);
+				evaluation.addDocument(goldDoc, doc, sieveNameToStats);
+				numDocs++;
+			}
+			reader.close();
+			if( writer != null ) writer.close();
+		} catch( IOException ex ) {
+			System.out.println("ERROR: couldn't stream " + path + " to " + outpath);
+			ex.printStackTrace();
+			System.exit(1);
+		}
+		SieveStats.closeUsageCSV(stats, usageCSV);
+		printCacheStats();
+
+		if( numDocs > 0 )
+			Evaluate.printEvaluation(evaluation, sieveClasses, sieveNameToStats);
+	}
+
+	/**
+	 * @param usageCSV Where the stats write their per-document usage rows, or null.
+	 */
+	SieveStats[] createAllSieveStats(PrintStream usageCSV) {
+		SieveStats stats[] = new SieveStats[sieveClasses.length];
+		for( int i = 0; i < sieveClasses.length; i++ ) {
+			stats[i] = new SieveStats(sieveClasses[i]);
+			stats[i].setUsageRows(usageCSV);
+		}
+		return stats;
+	}
+
+	/**
+	 * Run every sieve in order over a single document, then add the final links to the document.
+	 * All link state is local to this call, so different documents can run on different threads
+	 * as long as each thread has its own sieves and stats.
+	 */
+	private void runSievesOnDocument(SieveDocument doc, Sieve[] sieves, SieveStats[] stats) {
+		pipeline.runSieves(doc, sieves, stats);
+	}
+
+	/**
+	 * Runs whole documents concurrently through the sieve list. Each worker thread gets its own
+	 * sieve instances and its own stats, and pulls the next unprocessed document until none are left.
+	 * Documents are independent, so the links each one ends up with are the same as a serial run.
+	 * The worker stats are merged back into the given stats when all documents are done.
+	 * @param documents The documents to annotate.
+	 * @param sieves Already created sieves, used by the first worker.
+	 * @param stats The stats to merge all worker counts into.
+	 */
+	private void runSievesParallel(final List<SieveDocument> documents, Sieve[] sieves, SieveStats[] stats) {
+		int numWorkers = Math.max(1, Math.min(threads, documents.size()));
+		System.out.println("Running sieves on " + documents.size() + " documents with " + numWorkers + " threads.");
+
+		// Sieves are not guaranteed to be thread-safe, so every worker gets its own instances.
+		final Sieve workerSieves[][] = new Sieve[numWorkers][];
+		final SieveStats workerStats[][] = new SieveStats[numWorkers][];
+		workerSieves[0] = sieves;
+		for( int ww = 0; ww < numWorkers; ww++ ) {
+			if( ww > 0 ) workerSieves[ww] = createAllSieves(sieveClasses);
+			workerStats[ww] = createAllSieveStats(stats.length > 0 ? stats[0].getUsageRows() : null);
+		}
+
+		final AtomicInteger nextDoc = new AtomicInteger(0);
+		ExecutorService pool = Executors.newFixedThreadPool(numWorkers);
+		List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		for( int ww = 0; ww < numWorkers; ww++ ) {
+			final int worker = ww;
+			futures.add(pool.submit(new Callable<Object>() {
+				public Object call() {
+					int ii;
+					while( (ii = nextDoc.getAndIncrement()) < documents.size() )
+						runSievesOnDocument(documents.get(ii), workerSieves[worker], workerStats[worker]);
+					return null;
+				}
+			}));
+		}
+		pool.shutdown();
+
+		try {
+			for( Future<Object> future : futures )
+				future.get();
+		} catch( InterruptedException ex ) {
+			System.out.println("ERROR: interrupted while running sieves in parallel.");
+			ex.printStackTrace();
+			System.exit(1);
+		} catch( ExecutionException ex ) {
+			System.out.println("ERROR: a sieve worker failed.");
+			ex.getCause().printStackTrace();
+			System.exit(1);
+		}
+
+		// Combine the per-worker statistics.
+		for( int ww = 0; ww < numWorkers; ww++ )
+			for( int xx = 0; xx < stats.length; xx++ )
+				stats[xx].merge(workerStats[ww][xx]);
+	}
     
 	/**
 	 * Test each sieve's precision independently.
@@ -375,7 +466,7 @@ public class Main {
 					// Run it.
 					List<TLink> proposed = sieve.annotate(doc, currentTLinks);
 					if( debug ) System.out.println(sieveName + " proposed " + proposed.size() + ": " + proposed);
-					removeDuplicatesAndInvalids(proposed);
+					CaevoPipeline.removeDuplicatesAndInvalids(proposed, doc.getIdIndex());
 					
 					// Check proposed links.
 					if( proposed != null ) {
@@ -477,9 +568,54 @@ public class Main {
 		SieveDocuments docs = getDataset(dataset, thedocs);
         
 		// Train them!
-		for( Sieve sieve : sieves ) {
-			if( debug ) System.out.println("Training sieve: " + sieve.getClass().toString());
-			sieve.train(docs);
+		if( trainThreads > 1 )
+			trainSievesParallel(docs, sieves);
+		else {
+			for( Sieve sieve : sieves ) {
+				if( debug ) System.out.println("Training sieve: " + sieve.getClass().toString());
+				sieve.train(docs);
+			}
+		}
+	}
+
+	/**
+	 * Train up to Main.trainThreads sieves at a time. Each sieve trains on its own thread
+	 * exactly as it would alone and writes its own model files, so the models are the same
+	 * as a serial run. The sieves only read the shared documents. Pools inside a sieve (its
+	 * one-vs-rest classifiers, its featurizer) run serially on these workers, so the pools
+	 * don't nest.
+	 */
+	private void trainSievesParallel(final SieveDocuments docs, Sieve[] sieves) {
+		int numWorkers = Math.max(1, Math.min(trainThreads, sieves.length));
+		System.out.println("Training " + sieves.length + " sieves with " + numWorkers + " threads.");
+
+		ExecutorService pool = Executors.newFixedThreadPool(numWorkers);
+		List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		for( final Sieve sieve : sieves ) {
+			futures.add(pool.submit(new Callable<Object>() {
+				public Object call() {
+					if( debug ) System.out.println("Training sieve: " + sieve.getClass().toString());
+					// The sieve's own pools run serially here, so at most trainThreads threads train.
+					WorkerThreads.runAsWorker(new Runnable() {
+						public void run() { sieve.train(docs); }
+					});
+					return null;
+				}
+			}));
+		}
+		pool.shutdown();
+
+		try {
+			for( Future<Object> future : futures )
+				future.get();
+		} catch( InterruptedException ex ) {
+			System.out.println("ERROR: interrupted while training sieves in parallel.");
+			ex.printStackTrace();
+			System.exit(1);
+		} catch( ExecutionException ex ) {
+			System.out.println("ERROR: a sieve failed to train.");
+			ex.getCause().printStackTrace();
+			System.exit(1);
 		}
 	}
 	
@@ -527,109 +663,6 @@ public class Main {
 		return builder.toString();
 	}
     
-	private void addProposedToCurrentList(String sieveName, List<TLink> proposed, List<TLink> current, Map<String,TLink> currentHash) {
-		Iterator<TLink> iter = proposed.iterator();
-		while (iter.hasNext()) {
-			TLink newlink = iter.next();
-			if( currentHash.containsKey(newlink.getId1()+newlink.getId2()) ) {
-				System.out.println("MAIN WARNING: overwriting " + currentHash.get(newlink.getId1() + newlink.getId2()) + " with " + newlink);
-				current.remove(newlink);
-			}
-			current.add(newlink);
-			currentHash.put(newlink.getId1()+newlink.getId2(), newlink);
-			currentHash.put(newlink.getId2()+newlink.getId1(), newlink);
-			newlink.setOrigin(sieveName);
-		}
-	}
-
-	/**
- 	 * DESTRUCTIVE FUNCTION (proposedLinks will be modified)
-	 * Remove a link from the given list if another link already exists in the list
-	 * and covers the same event or time pair.
-	 * @param proposedLinks A list of TLinks to check for duplicates.
-	 * @return The number of duplicates found.
-	 */
-	private int removeDuplicatesAndInvalids(List<TLink> proposedLinks) {
-		if( proposedLinks == null || proposedLinks.size() < 2 ) 
-			return 0;
-		
-		List<TLink> removals = new ArrayList<TLink>();
-		Set<String> seenNew = new HashSet<String>();
-		
-		for( TLink proposed : proposedLinks ) {
-			// Make sure we have a valid link with 2 events!
-			if( proposed.getId1() == null || proposed.getId2() == null || 
-					proposed.getId1().length() == 0 || proposed.getId2().length() == 0 ) {
-				removals.add(proposed);
-				System.out.println("WARNING (proposed an invalid link): " + proposed);
-			}			
-			// Remove any proposed links that are duplicates of already proposed links.
-			else if( seenNew.contains(proposed.getId1()+proposed.getId2()) ) {
-				removals.add(proposed);
-				System.out.println("WARNING (proposed the same link twice): " + proposed);
-			}
-			// Normal link. Keep it.
-			else {
-				seenNew.add(proposed.getId1()+proposed.getId2());
-				seenNew.add(proposed.getId2()+proposed.getId1());
-			}
-		}
-		
-		for( TLink remove : removals )
-			proposedLinks.remove(remove);
-		
-		return removals.size();
-	}
-	
-	/**
-	 * DESTRUCTIVE FUNCTION (proposedLinks will be modified)
-	 * Removes any links from the proposed list that already have links between the same pairs in currentLinks.
-	 * @param currentLinksHash The list of current "good" links.
-	 * @param proposedLinks The list of proposed new links.
-	 * @return The number of links removed.
-	 */
-	private int removeConflicts(Map<String,TLink> currentLinksHash, List<TLink> proposedLinks) {
-		List<TLink> removals = new ArrayList<TLink>();
-
-		// Remove duplicates.
-		int duplicates = removeDuplicatesAndInvalids(proposedLinks);
-		if( debug && duplicates > 0 ) System.out.println("\t\tRemoved " + duplicates + " duplicate proposed links.");
-		
-		for( TLink proposed : proposedLinks ) {
-			// Look for a current link that conflicts with this proposed link.
-			TLink current = currentLinksHash.get(proposed.getId1()+proposed.getId2());
-			if (current != null && current.coversSamePair(proposed)) {
-				switch (current.getRelation()) {
-					case UNKNOWN:
-					case VAGUE:
-					case NONE:
-						// no harm in overwriting this weak tlink
-						break;
-					default:
-						removals.add(proposed);
-
-				}
-			}
-		}
-
-		for( TLink remove : removals )
-			proposedLinks.remove(remove);
-
-		return removals.size() + duplicates;
-	}
-	
-	/**
-	 * DESTRUCTIVE FUNCTION (links may have new TLink objects appended to it)
-	 * Run transitive closure and add any inferred links.
-	 * @param links The list of TLinks to expand with transitive closure.
-	 * @return The list of new links from closure (these are already added to the given lists)
-	 */
-	private List<TLink> closureExpand(String sieveName, List<TLink> links, Map<String,TLink> linksHash) {
-		List<TLink> newlinks = closure.computeClosure(links, false);
-		addProposedToCurrentList(sieveName, newlinks, links, linksHash);
-		return newlinks;
-	}
-    
 	/**
 	 * Given a path to a file or directory, assumes file(s) have proper XML markup with only 
 	 * the TEXT and DCT elements present. It is assumed the text in TEXT is not marked up and
@@ -642,6 +675,10 @@ public class Main {
 		markupRawXML(path,getDefaultFixedDct());
 	}
 	public void markupRawXML(String path, String dct) {
+		if( streamInput ) {
+			markupStreaming(path, true, dct);
+			return;
+		}
 		SieveDocuments docs = new SieveDocuments();
 		
 		// If a directory: parse a directory of XML files.
@@ -649,7 +686,7 @@ public class Main {
 			for( String file : Directory.getFilesSorted(path) ) {
 				String subpath = path + File.separator + file;
 				try {
-					SieveDocument doc = Tempeval3Parser.rawXMLtoSieveDocument(subpath, parser, gsf);
+					SieveDocument doc = Tempeval3Parser.rawXMLtoSieveDocument(subpath, parser, gsf, parseThreads, parseCache);
 					docs.addDocument(doc);
 				} catch( Exception ex ) {
 					System.out.println("ERROR while processing " + subpath);
@@ -660,7 +697,7 @@ public class Main {
 		// If a single file: parse it.
 		else {
 			try {
-				SieveDocument doc = Tempeval3Parser.rawXMLtoSieveDocument(path, parser, gsf);
+				SieveDocument doc = Tempeval3Parser.rawXMLtoSieveDocument(path, parser, gsf, parseThreads, parseCache);
 				docs.addDocument(doc);
 			} catch( Exception ex ) {
 				System.out.println("ERROR while processing " + path);
@@ -676,6 +713,7 @@ public class Main {
 		if( Directory.isDirectory(path) ) outpath = Directory.lastSubdirectory(path) + "-dir.info.xml";
 		docs.writeToXML(outpath);
 		System.out.println("Created " + outpath);
+		printCacheStats();
 	}
 	
 	/**
@@ -683,6 +721,8 @@ public class Main {
 	 * If a directory, assumes all files in the directory are to be processed.
 	 * This function will treat each text file as a separate document and perform complete
 	 * event, time, and tlink markup.
+	 * With Main.stream=true, each file is written out as soon as it is marked up and the
+	 * documents are not kept, so null is returned.
 	 * @param path Single file or directory of text files.
 	 */
 	public SieveDocuments markupRawText(String path) {
@@ -695,6 +735,10 @@ public class Main {
 		return markupRawText(input,isPath,getDefaultFixedDct());
 	}
 	public SieveDocuments markupRawText(String input, boolean isPath, String dct) {
+		if( isPath && streamInput ) {
+			markupStreaming(input, false, dct);
+			return null;
+		}
 		SieveDocuments docs = new SieveDocuments();
 
 		// If a directory: parse a directory of XML files.
@@ -703,17 +747,17 @@ public class Main {
 			if( Directory.isDirectory(path) ) {
 				for( String file : Directory.getFilesSorted(path) ) {
 					String subpath = path + File.separator + file;
-					SieveDocument doc = Tempeval3Parser.rawTextFileToParsed(subpath, parser, gsf);
+					SieveDocument doc = Tempeval3Parser.rawTextFileToParsed(subpath, parser, gsf, parseThreads, parseCache);
 					docs.addDocument(doc);
 				}
 			}
 			// If a single file: parse it.
 			else {
-				SieveDocument doc = Tempeval3Parser.rawTextFileToParsed(path, parser, gsf);
+				SieveDocument doc = Tempeval3Parser.rawTextFileToParsed(path, parser, gsf, parseThreads, parseCache);
 				docs.addDocument(doc);
 			}
 		} else {
-			SieveDocument doc = Tempeval3Parser.rawTextToParsed("input.txt", input, parser, gsf);
+			SieveDocument doc = Tempeval3Parser.rawTextToParsed("input.txt", input, parser, gsf, parseThreads, parseCache);
 			docs.addDocument(doc);
 		}
 
@@ -728,6 +772,7 @@ public class Main {
 			if( Directory.isDirectory(path) ) outpath = Directory.lastSubdirectory(path) + "-dir.info.xml";
 			docs.writeToXML(outpath);
 			System.out.println("Created " + outpath);
+			printCacheStats();
 		}
 		
 		return docs;
@@ -745,22 +790,86 @@ public class Main {
 	}
 	public void markupAll(SieveDocuments docs, String dct) {
 		markupEvents(docs);
-    // Try to determine DCT based on relevant property settings
-		// TODO: use reflection method parallel to how sieves are chosen to choose the right DCTHeuristic method
-		if (dctHeuristic.equals("setFirstDateAsDCT")) {
-			for (SieveDocument doc : docs.getDocuments()) {
-				DCTHeursitics.setFirstDateAsDCT(doc);  // only if there isn't already a DCT specified!
-			}
-		} else if (dctHeuristic.equals("setFixedDateAsDCT")) {
-			String date = dct;
-			for (SieveDocument doc : docs.getDocuments()) {
-				DCTHeursitics.setFixedDateAsDCT(doc, date);
-			}
-		}
+		markupDCTs(docs, dct);
 		markupTimexes(docs);
 		runSieves(docs);
 	}
+
+	private void markupDCTs(SieveDocuments docs, String dct) {
+		// Try to determine DCT based on relevant property settings
+		for (SieveDocument doc : docs.getDocuments())
+			DCTHeursitics.markupDCT(doc, dctHeuristic, dct);
+	}
+
+	/**
+	 * Streaming version of markupRawText/markupRawXML. Each file is parsed, gets its events, times
+	 * and tlinks, and is written to the .info.xml output before the next file is read, so memory
+	 * does not grow with the number of files. The sieves are created once and shared by all files.
+	 * @param path Single file or directory of files.
+	 * @param isXML True if the files have TEXT and DCT XML markup, false if raw text.
+	 */
+	private void markupStreaming(String path, boolean isXML, String dct) {
+		List<String> paths = new ArrayList<String>();
+		String outpath = path + ".info.xml";
+		if( Directory.isDirectory(path) ) {
+			for( String file : Directory.getFilesSorted(path) )
+				paths.add(path + File.separator + file);
+			outpath = Directory.lastSubdirectory(path) + "-dir.info.xml";
+		}
+		else paths.add(path);
+
+		Sieve sieves[] = createAllSieves(sieveClasses);
+		PrintStream usageCSV = SieveStats.openUsageCSV(SIEVE_TIMING_FILE);
+		SieveStats stats[] = createAllSieveStats(usageCSV);
+		try {
+			SieveDocumentsWriter writer = new SieveDocumentsWriter(outpath);
+			for( String subpath : paths ) {
+				SieveDocument doc;
+				try {
+					if( isXML ) doc = Tempeval3Parser.rawXMLtoSieveDocument(subpath, parser, gsf, parseThreads, parseCache);
+					else doc = Tempeval3Parser.rawTextFileToParsed(subpath, parser, gsf, parseThreads, parseCache);
+				} catch( Exception ex ) {
+					System.out.println("ERROR while processing " + subpath);
+					ex.printStackTrace();
+					continue;
+				}
+
+				markupParsedDocument(doc, dct, sieves, stats);
+				writer.write(doc);
+			}
+			writer.close();
+		} catch( IOException ex ) {
+			System.out.println("ERROR: couldn't write " + outpath);
+			ex.printStackTrace();
+			System.exit(1);
+		}
+		System.out.println("Created " + outpath);
+		printCacheStats();
+		SieveStats.closeUsageCSV(stats, usageCSV);
+	}
 	
+	/**
+	 * Same steps as markupAll(), on just one parsed document.
+	 * Several threads may call this at once if each passes its own sieves and stats: event and
+	 * timex extraction run one document at a time, while the sieves run concurrently.
+	 */
+	void markupParsedDocument(SieveDocument doc, String dct, Sieve[] sieves, SieveStats[] stats) {
+		pipeline.extract(doc, dct);
+		SieveDocuments single = new SieveDocuments();
+		single.addDocument(doc);
+		single.removeAllTLinks();
+		List<SieveDocument> inSet = getDataset(dataset, single).getDocuments();
+		if( inSet != null )
+			for( SieveDocument setdoc : inSet )
+				runSievesOnDocument(setdoc, sieves, stats);
+	}
+
+	private void printCacheStats() {
+		if( parseCache != null )
+			System.out.println("Parse cache: " + parseCache.getHits() + " hits, " + parseCache.getMisses() + " misses.");
+		ModelRegistry.printStats(System.out);
+	}
+
 	/**
 	 * Assumes the SieveDocuments has its text parsed.
 	 */
@@ -841,6 +950,23 @@ public class Main {
 			main.markupRawXML(args[args.length-2]);
 		}
 		
+		// Keep the models loaded and annotate raw text sent over HTTP.
+		else if( args.length > 0 && args[args.length-1].equalsIgnoreCase("server") ) {
+			main.dataset = DatasetType.ALL;
+			main.pipeline.warmUp();
+			try {
+				CaevoServer server = new CaevoServer(main.pipeline, CaevoProperties.getString("CaevoServer.host", CaevoServer.DEFAULT_HOST),
+						CaevoProperties.getInt("CaevoServer.port", CaevoServer.DEFAULT_PORT),
+						CaevoProperties.getInt("CaevoServer.threads", Math.max(1, main.threads)),
+						CaevoProperties.getInt("CaevoServer.maxBytes", CaevoServer.DEFAULT_MAX_BYTES));
+				server.start();
+			} catch( IOException ex ) {
+				System.out.println("ERROR: couldn't start the annotation server.");
+				ex.printStackTrace();
+				System.exit(1);
+			}
+		}
+
 		// The given SieveDocuments only has text and parses, so extract events/times first.
 		else if( args.length > 0 && args[args.length-1].equalsIgnoreCase("trainall") ) {
 			main.trainSieves();
@@ -20,6 +20,7 @@ import caevo.tlink.EventEventLink;
 import caevo.tlink.EventTimeLink;
 import caevo.tlink.TLink;
 import caevo.tlink.TimeTimeLink;
+import caevo.util.IdIndex;
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.trees.Tree;
@@ -38,6 +39,7 @@ public class SieveDocument {
 	
 	private HashMap<String, TextEvent> eiidToEvent;
 	private HashMap<String, Timex> tidToTimex;
+	private IdIndex idIndex;
 	
 	private List<List<TextEvent>> eventCorefSets;
 	
@@ -45,6 +47,7 @@ public class SieveDocument {
   	docname = name;
   	eiidToEvent = new HashMap<String, TextEvent>();
   	tidToTimex = new HashMap<String, Timex>();
+  	idIndex = new IdIndex();
   
   	eventCorefSets = new ArrayList<List<TextEvent>>();
   }
@@ -112,8 +115,10 @@ public class SieveDocument {
   	if( events != null ) {
   		for (TextEvent event : events) {
   			List<String> eiids = event.getAllEiids();
-  			for (String eiid : eiids)
+  			for (String eiid : eiids) {
   				eiidToEvent.put(eiid, event);
+  				idIndex.intern(eiid);
+  			}
   		}
   	}
   }
@@ -122,13 +127,16 @@ public class SieveDocument {
   	if( timexes != null ) {
   		for (Timex timex : timexes) {
   			tidToTimex.put(timex.getTid(), timex);
+  			idIndex.intern(timex.getTid());
   		}
   	}
   }
 
   private void addTimexToTidMap(Timex timex) {
-  	if( timex != null )
+  	if( timex != null ) {
   		tidToTimex.put(timex.getTid(), timex);
+  		idIndex.intern(timex.getTid());
+  	}
   }
 
   /**
@@ -292,6 +300,14 @@ public class SieveDocument {
   	return eventCorefSets;
   }
   
+  /**
+   * @return The dense int ids of this document's events and timexes. Ids that are not
+   *         events or timexes here (e.g., from a stray link) are added when first interned.
+   */
+  public IdIndex getIdIndex() {
+  	return idIndex;
+  }
+
   public TextEvent getEventByEiid(String eiid) {
   	if (eiidToEvent.containsKey(eiid)) 
   		return eiidToEvent.get(eiid);
@@ -436,7 +452,7 @@ public class SieveDocument {
   	return buf.toString();
   }
   
-  private static TLink tlinkFromElement(Element el) {
+  static TLink tlinkFromElement(Element el) {
     if( el.getAttributeValue(TLink.TLINK_TYPE_ATT).equals(TLink.EVENT_EVENT_TYPE_VALUE) )
       return new EventEventLink(el);
     else if( el.getAttributeValue(TLink.TLINK_TYPE_ATT).equals(TLink.EVENT_TIME_TYPE_VALUE) )
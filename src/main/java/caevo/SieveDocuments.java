@@ -14,9 +14,6 @@ import java.util.Set;
 import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.Namespace;
-import org.jdom.input.SAXBuilder;
-import org.jdom.output.Format;
-import org.jdom.output.XMLOutputter;
 
 /**
  * Timebank Corpus file that stores in an easier to read format, all the sentences and docs
@@ -45,8 +42,14 @@ public class SieveDocuments {
   public SieveDocuments() {
   }
 
+  /**
+   * Loads the documents from either the XML form or a binary snapshot (see SieveDocumentsBinary).
+   */
   public SieveDocuments(String filepath) {
-	  readFromXML(filepath);
+    if( SieveDocumentsBinary.isBinary(filepath) )
+      readFromBinary(filepath);
+    else
+      readFromXML(filepath);
 	}
   
   /**
@@ -86,21 +89,41 @@ public class SieveDocuments {
   	if( nameToDocument == null ) nameToDocument = new HashMap<String,SieveDocument>();
   	else nameToDocument.clear();
   	
-  	// Read the XML file.
-    SAXBuilder builder = new SAXBuilder();
+  	// Read the XML file, one <file> element at a time.
     try {
-      Namespace ns = Namespace.getNamespace(INFO_NS);
-      Document jdomDoc = builder.build(file);
+      SieveDocumentsReader reader = new SieveDocumentsReader(file);
+      for( SieveDocument doc : reader ) {
+      	documents.add(doc);
+      	nameToDocument.put(doc.getDocname(), doc);
+      }
+      reader.close();
+      System.out.println("Got " + documents.size() + " file elements.");
+    } catch (Exception e) {
+      // Don't leave the documents read before the error: a partial corpus looks like a whole one.
+      documents.clear();
+      nameToDocument.clear();
+      e.printStackTrace();
+    }
+  }
 
-      Element root = jdomDoc.getRootElement();
-      List children = root.getChildren(FILE_ELEM, ns);
-      System.out.println("Got " + children.size() + " file elements.");
-      for( Object obj : children ) {
-      	SieveDocument doc = SieveDocument.fromXML((Element)obj); 
+  public void readFromBinary(String path) {
+  	if( documents == null ) documents = new ArrayList<SieveDocument>();
+  	else documents.clear();
+  	if( nameToDocument == null ) nameToDocument = new HashMap<String,SieveDocument>();
+  	else nameToDocument.clear();
+
+    try {
+      SieveDocumentsBinary.Reader reader = new SieveDocumentsBinary.Reader(path);
+      for( SieveDocument doc : reader ) {
       	documents.add(doc);
       	nameToDocument.put(doc.getDocname(), doc);
-      }      
+      }
+      reader.close();
+      System.out.println("Got " + documents.size() + " binary documents.");
     } catch (Exception e) {
+      // As in readFromXML(), no partial corpus.
+      documents.clear();
+      nameToDocument.clear();
       e.printStackTrace();
     }
   }
@@ -133,16 +156,36 @@ public class SieveDocuments {
   public void writeToXML(String path) {
   	writeToXML(new File(path));
   }
+  /**
+   * Writes the documents one at a time (see SieveDocumentsWriter), so the whole
+   * corpus is never held in memory as one JDOM Document. Same output as toXML().
+   */
   public void writeToStream(OutputStream out) {
     try {
-      XMLOutputter op = new XMLOutputter(Format.getPrettyFormat());
-      Document jdomDoc = toXML();
-      op.output(jdomDoc, out);
+      SieveDocumentsWriter writer = new SieveDocumentsWriter(out);
+      if( documents != null )
+        for( SieveDocument doc : documents )
+          writer.write(doc);
+      writer.finish();
       out.flush();
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
+  /**
+   * Writes a binary snapshot of the documents (see SieveDocumentsBinary).
+   */
+  public void writeToBinary(String path) {
+    try {
+      SieveDocumentsBinary.Writer writer = new SieveDocumentsBinary.Writer(path);
+      if( documents != null )
+        for( SieveDocument doc : documents )
+          writer.write(doc);
+      writer.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
   public void writeToXML(File file) {
     FileOutputStream out = null;
     try {
@@ -0,0 +1,410 @@
+package caevo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+import caevo.tlink.TLink;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+
+/**
+ * A compact binary snapshot of SieveDocuments, so large corpora load without parsing XML.
+ * It holds the same content as the .info.xml form: tokens, parse trees, dependencies, events,
+ * timexes, tlinks and document creation times.
+ *
+ * Layout (all numbers big-endian, from DataOutputStream):
+ *   int MAGIC, int VERSION
+ *   for each document: byte 1, document
+ *   byte 0
+ * Strings are an int byte length (-1 for null) and UTF-8 bytes. Events, timexes and tlinks
+ * are stored as the attributes of their XML elements and rebuilt with the same constructors
+ * the XML reader uses. Attribute names are written once and then referred to by number.
+ *
+ * Usage:
+ *   SieveDocumentsBinary.Writer writer = new SieveDocumentsBinary.Writer(path);
+ *   for( each document ) writer.write(doc);
+ *   writer.close();
+ *
+ *   for( SieveDocument doc : new SieveDocumentsBinary.Reader(path) ) { ... }
+ *
+ * Convert an XML file: SieveDocumentsBinary <in.info.xml> <out.info.bin>
+ * and back again:     SieveDocumentsBinary <in.info.bin> <out.info.xml>
+ */
+public class SieveDocumentsBinary {
+  public static final int MAGIC = 0x43535644; // "CSVD"
+  public static final int VERSION = 1;
+
+  private static final byte MORE_DOCS = 1;
+  private static final byte END_DOCS = 0;
+
+  /**
+   * @return True if the file starts with the binary snapshot's magic number.
+   */
+  public static boolean isBinary(File file) {
+    if( !file.isFile() ) return false;
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new FileInputStream(file));
+      return in.readInt() == MAGIC;
+    } catch( IOException ex ) {
+      return false;
+    } finally {
+      if( in != null ) try { in.close(); } catch( IOException ex ) { }
+    }
+  }
+
+  public static boolean isBinary(String path) {
+    return isBinary(new File(path));
+  }
+
+  /**
+   * Writes documents one at a time to a binary snapshot.
+   */
+  public static class Writer {
+    private DataOutputStream out;
+    private List<String> names = new ArrayList<String>();
+    private int numWritten = 0;
+    private boolean finished = false;
+
+    public Writer(String path) throws IOException {
+      this(new File(path));
+    }
+
+    public Writer(File file) throws IOException {
+      this(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    /**
+     * Writes the header to the given stream. The stream is only closed by close().
+     */
+    public Writer(OutputStream out) throws IOException {
+      this.out = new DataOutputStream(out);
+      this.out.writeInt(MAGIC);
+      this.out.writeInt(VERSION);
+    }
+
+    public void write(SieveDocument doc) throws IOException {
+      if( finished )
+        throw new IllegalStateException("SieveDocumentsBinary.Writer already finished");
+      out.writeByte(MORE_DOCS);
+      writeString(doc.getDocname());
+
+      List<SieveSentence> sentences = doc.getSentences();
+      out.writeInt(sentences == null ? 0 : sentences.size());
+      if( sentences != null )
+        for( SieveSentence sent : sentences )
+          writeSentence(sent);
+
+      writeElements(doc.getTlinks());
+      writeElements(doc.getDocstamp());
+      numWritten++;
+    }
+
+    public int getNumWritten() {
+      return numWritten;
+    }
+
+    /**
+     * Marks the end of the documents and flushes, but leaves the underlying stream open.
+     */
+    public void finish() throws IOException {
+      if( finished ) return;
+      finished = true;
+      out.writeByte(END_DOCS);
+      out.flush();
+    }
+
+    public void close() throws IOException {
+      finish();
+      out.close();
+    }
+
+    private void writeSentence(SieveSentence sent) throws IOException {
+      out.writeInt(sent.sid());
+      writeString(sent.sentence());
+      writeString(sent.parseString());
+      writeString(sent.depsString());
+
+      List<CoreLabel> tokens = sent.tokens();
+      out.writeInt(tokens == null ? -1 : tokens.size());
+      if( tokens != null ) {
+        for( CoreLabel token : tokens ) {
+          writeString(token.getString(CoreAnnotations.BeforeAnnotation.class));
+          writeString(token.getString(CoreAnnotations.OriginalTextAnnotation.class));
+          writeString(token.getString(CoreAnnotations.AfterAnnotation.class));
+        }
+      }
+
+      writeElements(sent.events());
+      writeElements(sent.timexes());
+    }
+
+    /**
+     * Writes a list of TextEvents, Timexes or TLinks as the attributes of their XML elements.
+     */
+    private void writeElements(List<?> objects) throws IOException {
+      out.writeInt(objects == null ? 0 : objects.size());
+      if( objects == null ) return;
+      Namespace ns = Namespace.NO_NAMESPACE;
+      for( Object obj : objects ) {
+        Element el;
+        if( obj instanceof TextEvent ) el = ((TextEvent)obj).toElement(ns);
+        else if( obj instanceof Timex ) el = ((Timex)obj).toElement(ns);
+        else el = ((TLink)obj).toElement(ns);
+        writeAttributes(el);
+      }
+    }
+
+    private void writeAttributes(Element el) throws IOException {
+      List<?> atts = el.getAttributes();
+      out.writeInt(atts.size());
+      for( Object obj : atts ) {
+        Attribute att = (Attribute)obj;
+        int index = names.indexOf(att.getName());
+        if( index < 0 ) {
+          // A new name: its number is the next one, and the name itself follows.
+          out.writeInt(names.size());
+          writeString(att.getName());
+          names.add(att.getName());
+        }
+        else out.writeInt(index);
+        writeString(att.getValue());
+      }
+    }
+
+    private void writeString(String str) throws IOException {
+      if( str == null ) out.writeInt(-1);
+      else {
+        byte[] bytes = str.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+  }
+
+  /**
+   * Reads documents one at a time from a binary snapshot.
+   */
+  public static class Reader implements Iterable<SieveDocument>, Iterator<SieveDocument> {
+    private DataInputStream in;
+    private List<String> names = new ArrayList<String>();
+    private SieveDocument nextDoc = null;
+    private boolean done = false;
+    private int numRead = 0;
+
+    public Reader(String path) throws IOException {
+      this(new File(path));
+    }
+
+    public Reader(File file) throws IOException {
+      this(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    /**
+     * Reads and checks the header.
+     * @throws IOException If the stream is not a binary snapshot, or is from an unknown version.
+     */
+    public Reader(InputStream in) throws IOException {
+      this.in = new DataInputStream(in);
+      try {
+        if( this.in.readInt() != MAGIC )
+          throw new IOException("Not a binary SieveDocuments file.");
+        int version = this.in.readInt();
+        if( version != VERSION )
+          throw new IOException("Unsupported binary SieveDocuments version " + version + " (expected " + VERSION + ")");
+      } catch( IOException ex ) {
+        this.in.close();
+        throw ex;
+      }
+    }
+
+    public Iterator<SieveDocument> iterator() {
+      return this;
+    }
+
+    public boolean hasNext() {
+      if( nextDoc == null && !done )
+        nextDoc = readNextDocument();
+      return nextDoc != null;
+    }
+
+    public SieveDocument next() {
+      if( !hasNext() )
+        throw new NoSuchElementException();
+      SieveDocument doc = nextDoc;
+      nextDoc = null;
+      return doc;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return The number of documents returned so far.
+     */
+    public int getNumRead() {
+      return numRead;
+    }
+
+    public void close() {
+      done = true;
+      try {
+        in.close();
+      } catch( Exception ex ) { ex.printStackTrace(); }
+    }
+
+    /**
+     * A truncated or unreadable file closes the reader and throws a RuntimeException (out of
+     * hasNext() and next()) rather than ending the iteration early.
+     * @return The next document, or null at the end of the file (the reader is then closed).
+     */
+    private SieveDocument readNextDocument() {
+      try {
+        if( in.readByte() == MORE_DOCS ) {
+          numRead++;
+          return readDocument();
+        }
+      } catch( EOFException ex ) {
+        close();
+        throw new RuntimeException("Binary SieveDocuments file ended early after " + numRead + " documents", ex);
+      } catch( IOException ex ) {
+        close();
+        throw new RuntimeException("Failed reading binary SieveDocuments after " + numRead + " documents", ex);
+      }
+      close();
+      return null;
+    }
+
+    private SieveDocument readDocument() throws IOException {
+      SieveDocument doc = new SieveDocument(readString());
+
+      int numSentences = in.readInt();
+      for( int ii = 0; ii < numSentences; ii++ ) {
+        SieveSentence sent = readSentence(doc);
+        doc.addSentence(sent);
+      }
+
+      int numLinks = in.readInt();
+      for( int ii = 0; ii < numLinks; ii++ )
+        doc.addTlink(SieveDocument.tlinkFromElement(readElement(TLink.TLINK_ELEM)));
+
+      int numStamps = in.readInt();
+      for( int ii = 0; ii < numStamps; ii++ )
+        doc.addCreationTime(new Timex(readElement(Timex.TIMEX_ELEM)));
+
+      return doc;
+    }
+
+    private SieveSentence readSentence(SieveDocument doc) throws IOException {
+      int sid = in.readInt();
+      String sentence = readString();
+      String parse = readString();
+      String deps = readString();
+
+      List<CoreLabel> tokens = null;
+      int numTokens = in.readInt();
+      if( numTokens >= 0 ) {
+        tokens = new ArrayList<CoreLabel>(numTokens);
+        for( int ii = 0; ii < numTokens; ii++ ) {
+          CoreLabel label = new CoreLabel();
+          label.set(CoreAnnotations.BeforeAnnotation.class, readString());
+          label.set(CoreAnnotations.OriginalTextAnnotation.class, readString());
+          label.set(CoreAnnotations.AfterAnnotation.class, readString());
+          tokens.add(label);
+        }
+      }
+
+      int numEvents = in.readInt();
+      List<TextEvent> events = new ArrayList<TextEvent>(numEvents);
+      for( int ii = 0; ii < numEvents; ii++ )
+        events.add(new TextEvent(sid, readElement(TextEvent.NAME_ELEM)));
+
+      int numTimexes = in.readInt();
+      List<Timex> timexes = new ArrayList<Timex>(numTimexes);
+      for( int ii = 0; ii < numTimexes; ii++ ) {
+        Timex timex = new Timex(readElement(Timex.TIMEX_ELEM));
+        timex.setSid(sid);
+        timexes.add(timex);
+      }
+
+      return new SieveSentence(doc, sid, sentence, parse, deps, tokens, events, timexes);
+    }
+
+    private Element readElement(String name) throws IOException {
+      Element el = new Element(name);
+      int numAtts = in.readInt();
+      for( int ii = 0; ii < numAtts; ii++ ) {
+        int index = in.readInt();
+        if( index == names.size() )
+          names.add(readString());
+        el.setAttribute(names.get(index), readString());
+      }
+      return el;
+    }
+
+    private String readString() throws IOException {
+      int length = in.readInt();
+      if( length < 0 ) return null;
+      byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      return new String(bytes, "UTF-8");
+    }
+  }
+
+  /**
+   * Converts between the XML and binary forms. The direction is chosen by the input file's
+   * contents: a binary input is written out as XML, anything else is read as XML.
+   */
+  public static void main(String[] args) {
+    if( args.length < 2 ) {
+      System.err.println("SieveDocumentsBinary <in.info.xml> <out.info.bin>");
+      System.err.println("SieveDocumentsBinary <in.info.bin> <out.info.xml>");
+      System.exit(1);
+    }
+
+    try {
+      int count = 0;
+      if( isBinary(args[0]) ) {
+        Reader reader = new Reader(args[0]);
+        SieveDocumentsWriter writer = new SieveDocumentsWriter(args[1]);
+        for( SieveDocument doc : reader )
+          writer.write(doc);
+        count = writer.getNumWritten();
+        writer.close();
+        reader.close();
+      }
+      else {
+        SieveDocumentsReader reader = new SieveDocumentsReader(args[0]);
+        Writer writer = new Writer(args[1]);
+        for( SieveDocument doc : reader )
+          writer.write(doc);
+        count = writer.getNumWritten();
+        writer.close();
+        reader.close();
+      }
+      System.out.println("Converted " + count + " documents to " + args[1]);
+    } catch( IOException ex ) {
+      System.out.println("ERROR: could not convert " + args[0]);
+      ex.printStackTrace();
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package caevo;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jdom.CDATA;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jdom.Text;
+
+/**
+ * Reads a SieveDocuments XML file one <file> element at a time, instead of building the
+ * JDOM tree of the whole file first. Each <file> element is turned into a small JDOM
+ * Element and given to SieveDocument.fromXML(), so documents come out the same as from
+ * SieveDocuments.readFromXML().
+ *
+ * Usage:
+ *   SieveDocumentsReader reader = new SieveDocumentsReader(path);
+ *   for( SieveDocument doc : reader ) { ... }
+ *   reader.close();
+ */
+public class SieveDocumentsReader implements Iterable<SieveDocument>, Iterator<SieveDocument> {
+  private InputStream in;
+  private XMLStreamReader xml;
+  private SieveDocument nextDoc = null;
+  private boolean done = false;
+  private int numRead = 0;
+
+  public SieveDocumentsReader(String path) throws IOException {
+    this(new File(path));
+  }
+
+  public SieveDocumentsReader(File file) throws IOException {
+    this(new BufferedInputStream(new FileInputStream(file)));
+  }
+
+  public SieveDocumentsReader(InputStream in) throws IOException {
+    this.in = in;
+    try {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+      xml = factory.createXMLStreamReader(in);
+    } catch( XMLStreamException ex ) {
+      in.close();
+      throw new IOException("Could not start reading SieveDocuments XML: " + ex.getMessage(), ex);
+    }
+  }
+
+  public Iterator<SieveDocument> iterator() {
+    return this;
+  }
+
+  public boolean hasNext() {
+    if( nextDoc == null && !done )
+      nextDoc = readNextDocument();
+    return nextDoc != null;
+  }
+
+  public SieveDocument next() {
+    if( !hasNext() )
+      throw new NoSuchElementException();
+    SieveDocument doc = nextDoc;
+    nextDoc = null;
+    return doc;
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @return The number of documents returned so far.
+   */
+  public int getNumRead() {
+    return numRead;
+  }
+
+  public void close() {
+    done = true;
+    try {
+      xml.close();
+      in.close();
+    } catch( Exception ex ) { ex.printStackTrace(); }
+  }
+
+  /**
+   * Skips ahead to the next <file> element, and creates a document from just that element.
+   * Malformed or truncated XML is not the end of the input: it closes the reader and throws
+   * a RuntimeException (out of hasNext() and next()), so callers never get a silent prefix.
+   * @return The next document, or null at the end of the XML (the reader is then closed).
+   */
+  private SieveDocument readNextDocument() {
+    try {
+      while( xml.hasNext() ) {
+        int event = xml.next();
+        if( event == XMLStreamConstants.START_ELEMENT &&
+            SieveDocuments.FILE_ELEM.equals(xml.getLocalName()) &&
+            SieveDocuments.INFO_NS.equals(xml.getNamespaceURI()) ) {
+          numRead++;
+          return SieveDocument.fromXML(readElement(xml));
+        }
+      }
+    } catch( XMLStreamException ex ) {
+      close();
+      throw new RuntimeException("Failed reading SieveDocuments XML after " + numRead + " documents", ex);
+    }
+    close();
+    return null;
+  }
+
+  /**
+   * Builds a JDOM Element from the reader's current START_ELEMENT through its matching
+   * END_ELEMENT, keeping all text (whitespace included) like SAXBuilder does.
+   * @param xml A reader positioned on a START_ELEMENT. It is left on the matching END_ELEMENT.
+   * @return The element and all of its content.
+   */
+  public static Element readElement(XMLStreamReader xml) throws XMLStreamException {
+    Element root = startElement(xml);
+    Element current = root;
+    int depth = 1;
+    while( depth > 0 ) {
+      switch( xml.next() ) {
+        case XMLStreamConstants.START_ELEMENT:
+          Element child = startElement(xml);
+          current.addContent(child);
+          current = child;
+          depth++;
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          current = current.getParentElement();
+          depth--;
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.SPACE:
+          current.addContent(new Text(xml.getText()));
+          break;
+        case XMLStreamConstants.CDATA:
+          current.addContent(new CDATA(xml.getText()));
+          break;
+        default:
+          // comments and processing instructions are not used by fromXML()
+          break;
+      }
+    }
+    return root;
+  }
+
+  private static Element startElement(XMLStreamReader xml) {
+    Element el = new Element(xml.getLocalName(), namespace(xml.getPrefix(), xml.getNamespaceURI()));
+    for( int ii = 0; ii < xml.getAttributeCount(); ii++ ) {
+      String uri = xml.getAttributeNamespace(ii);
+      if( uri == null || uri.length() == 0 )
+        el.setAttribute(xml.getAttributeLocalName(ii), xml.getAttributeValue(ii));
+      else
+        el.setAttribute(xml.getAttributeLocalName(ii), xml.getAttributeValue(ii), namespace(xml.getAttributePrefix(ii), uri));
+    }
+    return el;
+  }
+
+  private static Namespace namespace(String prefix, String uri) {
+    if( uri == null || uri.length() == 0 )
+      return Namespace.NO_NAMESPACE;
+    return Namespace.getNamespace(prefix == null ? "" : prefix, uri);
+  }
+}
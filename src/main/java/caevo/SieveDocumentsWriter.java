@@ -0,0 +1,110 @@
+package caevo;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
+
+/**
+ * Writes SieveDocuments XML one document at a time, so the JDOM tree for the whole corpus is
+ * never built. Each write() turns one document into its <file> element, prints it, and drops it.
+ * The output is byte for byte what SieveDocuments.toXML() and a pretty XMLOutputter produce.
+ *
+ * Usage:
+ *   SieveDocumentsWriter writer = new SieveDocumentsWriter(path);
+ *   for( each document ) writer.write(doc);
+ *   writer.close();
+ */
+public class SieveDocumentsWriter {
+  private static final String ROOT_ELEM = "root";
+
+  private Writer writer;
+  private FileElementOutputter outputter = new FileElementOutputter();
+  private Namespace ns = Namespace.getNamespace(SieveDocuments.INFO_NS);
+  private String newline;
+  private String indent;
+  private int numWritten = 0;
+  private boolean finished = false;
+
+  public SieveDocumentsWriter(String path) throws IOException {
+    this(new File(path));
+  }
+
+  public SieveDocumentsWriter(File file) throws IOException {
+    this(new BufferedOutputStream(new FileOutputStream(file)));
+  }
+
+  /**
+   * Starts the XML output on the given stream. The stream is only closed by close().
+   */
+  public SieveDocumentsWriter(OutputStream out) throws IOException {
+    Format format = outputter.getFormat();
+    writer = new OutputStreamWriter(out, format.getEncoding());
+    newline = format.getLineSeparator();
+    indent = format.getIndent();
+    writer.write("<?xml version=\"1.0\" encoding=\"" + format.getEncoding() + "\"?>" + newline);
+  }
+
+  /**
+   * Write one document's <file> element and flush it to the stream.
+   */
+  public void write(SieveDocument doc) throws IOException {
+    if( finished )
+      throw new IllegalStateException("SieveDocumentsWriter already finished");
+    if( numWritten == 0 )
+      writer.write("<" + ROOT_ELEM + " xmlns=\"" + ns.getURI() + "\">");
+    writer.write(newline + indent);
+    outputter.printFileElement(writer, doc.toXML(), ns);
+    writer.flush();
+    numWritten++;
+  }
+
+  public int getNumWritten() {
+    return numWritten;
+  }
+
+  /**
+   * Close the root element and flush, but leave the underlying stream open.
+   */
+  public void finish() throws IOException {
+    if( finished ) return;
+    finished = true;
+    if( numWritten == 0 )
+      writer.write("<" + ROOT_ELEM + " xmlns=\"" + ns.getURI() + "\" />" + newline + newline);
+    else
+      writer.write(newline + "</" + ROOT_ELEM + ">" + newline + newline);
+    writer.flush();
+  }
+
+  /**
+   * Finish the XML and close the underlying stream.
+   */
+  public void close() throws IOException {
+    finish();
+    writer.close();
+  }
+
+  /**
+   * Prints a <file> element at the same indentation XMLOutputter uses for children of the root.
+   */
+  private static class FileElementOutputter extends XMLOutputter {
+    FileElementOutputter() {
+      super(Format.getPrettyFormat());
+    }
+
+    void printFileElement(Writer out, Element el, Namespace rootNamespace) throws IOException {
+      // The root element already declared our namespace, so don't repeat it on every <file>.
+      NamespaceStack namespaces = new NamespaceStack() {};
+      namespaces.push(rootNamespace);
+      printElement(out, el, 1, namespaces);
+    }
+  }
+}
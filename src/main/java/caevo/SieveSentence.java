@@ -197,7 +197,9 @@ public class SieveSentence {
 	  return buf.toString();
 	}
 
-  public Tree getParseTree() {
+  // Synchronized so that threads sharing a document (e.g. sieves training in parallel) all
+  // get the same tree and dependency objects, and only one of them builds each.
+  public synchronized Tree getParseTree() {
   	if( parseTree == null ) {
       TreeFactory tf = new LabeledScoredTreeFactory();
   		parseTree = TreeOperator.stringToTree(parseStr, tf);
@@ -205,7 +207,7 @@ public class SieveSentence {
   	return parseTree; 
   }
   
-  public List<TypedDependency> getDeps() {
+  public synchronized List<TypedDependency> getDeps() {
   	if( deps == null )
   		deps = TreeOperator.stringToDependencies(depsStr);
   	return deps;
@@ -214,6 +216,8 @@ public class SieveSentence {
   public void setParent(SieveDocument doc) { parent = doc; }
   public int sid() { return sid; }
   public String sentence() { return sentence; }
+  public String parseString() { return parseStr; }
+  public String depsString() { return depsStr; }
   public List<CoreLabel> tokens() { return tokens; }
   public List<TextEvent> events() { return events; }
   public List<Timex> timexes() { return timexes; }
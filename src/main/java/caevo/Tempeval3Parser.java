@@ -9,6 +9,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -26,6 +31,7 @@ import caevo.util.Directory;
 import caevo.util.HandleParameters;
 import caevo.util.Ling;
 import caevo.util.Pair;
+import caevo.util.ParseCache;
 import caevo.util.TimebankUtil;
 import caevo.util.TreeOperator;
 import caevo.util.Util;
@@ -821,10 +827,25 @@ public class Tempeval3Parser {
    * the SieveDocument object.
    */
   public static SieveDocument rawXMLtoSieveDocument(String xmlFilePath, LexicalizedParser parser, GrammaticalStructureFactory gsf) {
+    return rawXMLtoSieveDocument(xmlFilePath, parser, gsf, 1, null);
+  }
+
+  /**
+   * Same as above, but parses the text's sentences on the given number of threads.
+   * @param cache Parses of previously seen sentences, or null to parse everything.
+   */
+  public static SieveDocument rawXMLtoSieveDocument(String xmlFilePath, LexicalizedParser parser, GrammaticalStructureFactory gsf, int threads, ParseCache cache) {
 
     // PARSE the input XML document of events
     Document doc = getXMLDocFromPath(xmlFilePath);
+    return rawXMLtoSieveDocument((new File(xmlFilePath)).getName(), doc, parser, gsf, threads, cache);
+  }
 
+  /**
+   * Same as above, but from an XML document that was already read (e.g., not from a file).
+   * @param docname The name to give the new SieveDocument.
+   */
+  public static SieveDocument rawXMLtoSieveDocument(String docname, Document doc, LexicalizedParser parser, GrammaticalStructureFactory gsf, int threads, ParseCache cache) {
     // Grab the TEXT element.
     Element textElement = null;
     String justtext = null;
@@ -834,7 +855,7 @@ public class Tempeval3Parser {
     }
 
     // Parse the text.
-    SieveDocument sdoc = rawTextToParsed((new File(xmlFilePath)).getName(), justtext, parser, gsf);
+    SieveDocument sdoc = rawTextToParsed(docname, justtext, parser, gsf, threads, cache);
     
     // Grab the DCT element.
     Element dctElement = null;
@@ -1264,15 +1285,29 @@ public class Tempeval3Parser {
   }
   
   public static SieveDocument rawTextFileToParsed(String filepath, LexicalizedParser parser, GrammaticalStructureFactory gsf) {
+    return rawTextFileToParsed(filepath, parser, gsf, 1, null);
+  }
+
+  public static SieveDocument rawTextFileToParsed(String filepath, LexicalizedParser parser, GrammaticalStructureFactory gsf, int threads, ParseCache cache) {
     List<String> lines = Util.readLinesFromFile(filepath);
     String bigone = lines.get(0);
     for( int xx = 1; xx < lines.size(); xx++ ) bigone += "\n" + lines.get(xx);
 //    System.out.println("bigone=" + bigone);
  
-    return rawTextToParsed(filepath, bigone, parser, gsf);
+    return rawTextToParsed(filepath, bigone, parser, gsf, threads, cache);
   }
   
   public static SieveDocument rawTextToParsed(String filename, String text, LexicalizedParser parser, GrammaticalStructureFactory gsf) {
+    return rawTextToParsed(filename, text, parser, gsf, 1, null);
+  }
+
+  /**
+   * Splits the text into sentences and parses them.
+   * @param threads The number of sentences to parse at once. The sentences are still added to
+   *                the document in their original order, so sids match a single-threaded run.
+   * @param cache Parses of previously seen sentences, or null to parse everything.
+   */
+  public static SieveDocument rawTextToParsed(String filename, String text, LexicalizedParser parser, GrammaticalStructureFactory gsf, int threads, ParseCache cache) {
     List<List<HasWord>> sentencesNormInvertible = new ArrayList<List<HasWord>>();
     sentencesNormInvertible.addAll(Ling.getSentencesFromTextNormInvertible(text));
     System.out.println("Got " + sentencesNormInvertible.size() + " sentences.");
@@ -1286,10 +1321,12 @@ public class Tempeval3Parser {
     
     SieveDocument sdoc = new SieveDocument((new File(filename)).getName());
 
+    List<Pair<String,String>> parses = parseDepAll(sentencesNormInvertible, parser, gsf, threads, cache);
+
     int sid = 0;
     for( List<HasWord> sent : sentencesNormInvertible ) {
 //    	System.out.println("* " + sent);
-      Pair<String,String> parseDep = parseDep(sent, parser, gsf);
+      Pair<String,String> parseDep = parses.get(sid);
       List<CoreLabel> cls = new ArrayList<CoreLabel>();
       for( HasWord word : sent ) cls.add((CoreLabel)word);
       sdoc.addSentence(buildString(sent, 0, sent.size()), cls, parseDep.first(), parseDep.second(), null, null);
@@ -1299,6 +1336,63 @@ public class Tempeval3Parser {
     return sdoc; 
   }
   
+  /**
+   * Parse all of the sentences, syntactic and dependency.
+   * @param threads How many sentences to parse at once. The parser is shared by all threads.
+   * @param cache Parses of previously seen sentences, or null to parse everything.
+   * @return One (phrase tree, dependency graph) pair per sentence, in the same order as the sentences.
+   */
+  public static List<Pair<String,String>> parseDepAll(List<List<HasWord>> sentences, final LexicalizedParser parser, final GrammaticalStructureFactory gsf, int threads, final ParseCache cache) {
+    List<Pair<String,String>> parses = new ArrayList<Pair<String,String>>(sentences.size());
+    int numWorkers = Math.min(threads, sentences.size());
+    if( numWorkers <= 1 ) {
+      for( List<HasWord> sent : sentences )
+        parses.add(parseDep(sent, parser, gsf, cache));
+      return parses;
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(numWorkers);
+    try {
+      List<Future<Pair<String,String>>> futures = new ArrayList<Future<Pair<String,String>>>(sentences.size());
+      for( final List<HasWord> sent : sentences ) {
+        futures.add(pool.submit(new Callable<Pair<String,String>>() {
+          public Pair<String,String> call() {
+            return parseDep(sent, parser, gsf, cache);
+          }
+        }));
+      }
+      // Collect in submission order, regardless of which sentence finished first.
+      for( Future<Pair<String,String>> future : futures )
+        parses.add(future.get());
+    } catch( InterruptedException ex ) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while parsing sentences", ex);
+    } catch( ExecutionException ex ) {
+      throw new RuntimeException("Failed to parse a sentence", ex.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    return parses;
+  }
+
+  /**
+   * Same as parseDep() below, but first looks for the sentence in the given cache, and stores
+   * new parses in it.
+   * @param cache The parse cache, or null to always parse.
+   */
+  public static Pair<String,String> parseDep(List<HasWord> sentence, LexicalizedParser parser, GrammaticalStructureFactory gsf, ParseCache cache) {
+    if( cache == null || sentence == null )
+      return parseDep(sentence, parser, gsf);
+
+    String key = cache.key(sentence);
+    Pair<String,String> parse = cache.get(key);
+    if( parse == null ) {
+      parse = parseDep(sentence, parser, gsf);
+      cache.put(key, parse);
+    }
+    return parse;
+  }
+
   private Pair<String,String> parseDep(List<HasWord> sentence) {
     return parseDep(sentence, _parser, _gsf);
   }
@@ -1341,7 +1435,12 @@ public class Tempeval3Parser {
       }
 
       // DEP PARSE the sentence - CAUTION: DESTRUCTIVE to parse tree
-      String depString = lexParseToDeps(ansTree, gsf);
+      // The dependency conversion is not documented as thread-safe, and it is cheap next to
+      // parsing, so threads from parseDepAll() take turns here.
+      String depString;
+      synchronized( gsf ) {
+        depString = lexParseToDeps(ansTree, gsf);
+      }
 
 //      System.out.println(" - deps: " + depString);
      
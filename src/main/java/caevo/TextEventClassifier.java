@@ -93,10 +93,7 @@ public class TextEventClassifier {
   	// If a path was passed as a command-line parameter.
   	if( wordnetPath != null )
   		wordnet = new WordNet(wordnetPath);
-  	// Otherwise, use the Main.java wordnet instance.
-  	else if( Main.wordnet != null )
-  		wordnet = Main.wordnet;
-  	// Create a new one as a last resort.
+  	// Otherwise, create a new one.
   	else
   		wordnet = new WordNet();
   }
@@ -112,7 +109,7 @@ public class TextEventClassifier {
    * @param wordIndex
    * @return
    */
-  private String pathToSTag(Tree tree, int wordIndex) {
+  private static String pathToSTag(Tree tree, int wordIndex) {
   	Tree subtree = TreeOperator.indexToSubtree(tree, wordIndex);
   	if( subtree == null ) {
   	  System.out.println("ERROR: couldn't find subtree for word index " + wordIndex + " in tree: " + tree);
@@ -137,27 +134,105 @@ public class TextEventClassifier {
   	return path;
   }
   
+  /**
+   * Everything about one sentence that the token features look up: lowercased tokens, POS tags,
+   * parse paths and dependency relations. Built once per sentence so that featurizing each
+   * token doesn't walk the parse tree and the dependency list again.
+   * Arrays are indexed by word index, starting from 1.
+   */
+  private static class SentenceFeatures {
+    final int size;
+    final String[] tokens;
+    final String[] pos;
+    final String[] paths;
+    final List<List<String>> depFeats;
+
+    SentenceFeatures(SieveSentence sentence, Tree tree, List<TypedDependency> deps) {
+      List<CoreLabel> labels = sentence.tokens();
+      size = labels.size();
+      tokens = new String[size+1];
+      for( int xx = 1; xx <= size; xx++ )
+        tokens[xx] = labels.get(xx-1).getString(CoreAnnotations.OriginalTextAnnotation.class).toLowerCase();
+
+      // One walk down the tree gives each word's POS tag and its path up to the S node.
+      pos = new String[size+1];
+      paths = new String[size+1];
+      List<Tree> ancestors = new ArrayList<Tree>();
+      if( !collectPreterminals(tree, ancestors, new int[] { 1 }) ) {
+        // Unusual tree shape, so look each word up the slow way.
+        for( int xx = 1; xx <= size; xx++ ) {
+          pos[xx] = TreeOperator.indexToPOSTag(tree, xx);
+          paths[xx] = pathToSTag(tree, xx);
+        }
+      }
+
+      // The dependency relations each word governs (DEPG) or depends on (DEPD).
+      depFeats = new ArrayList<List<String>>(size+1);
+      for( int xx = 0; xx <= size; xx++ )
+        depFeats.add(new ArrayList<String>(2));
+      for( TypedDependency dep : deps ) {
+        int gov = dep.gov().index();
+        int child = dep.dep().index();
+        if( gov >= 1 && gov <= size )
+          depFeats.get(gov).add("DEPG-" + dep.reln());
+        if( child != gov && child >= 1 && child <= size )
+          depFeats.get(child).add("DEPD-" + dep.reln());
+      }
+    }
+
+    /**
+     * Fill in pos[] and paths[] for the words under this node, the same as indexToPOSTag() and
+     * pathToSTag() would find them.
+     * @param ancestors The nodes above this one, root first.
+     * @param nextIndex The word index of the next leaf.
+     * @return False if the tree doesn't have one preterminal per word, in order.
+     */
+    private boolean collectPreterminals(Tree node, List<Tree> ancestors, int[] nextIndex) {
+      if( node == null || node.isLeaf() ) return false;
+      if( node.firstChild().isLeaf() ) {
+        int index = nextIndex[0]++;
+        if( node.numChildren() != 1 || index > size ) return false;
+        pos[index] = node.label().value();
+
+        // Walk up to the first S or SBAR, including it.
+        String path = node.label().value();
+        for( int aa = ancestors.size()-1; aa >= 0; aa-- ) {
+          String tag = ancestors.get(aa).label().value();
+          path = tag + "-" + path;
+          if( tag.equalsIgnoreCase("S") || tag.equalsIgnoreCase("SBAR") ) break;
+        }
+        paths[index] = path;
+        return true;
+      }
+
+      ancestors.add(node);
+      for( Tree child : node.children() )
+        if( !collectPreterminals(child, ancestors, nextIndex) ) return false;
+      ancestors.remove(ancestors.size()-1);
+      return ancestors.size() > 0 || nextIndex[0] == size+1;
+    }
+  }
+
   /**
    * Extract features for a single token in a sentence in order to identify whether or
-   * not it is an event. 
-   * @param sentence The sentence data structure with all parse information filled in.
+   * not it is an event. The same features feed the tense, aspect and class classifiers.
+   * @param sentence The precomputed features of the token's sentence.
    * @param wordIndex Starting from 1.
    * @return
    */
-  private Counter<String> getEventFeatures(SieveSentence sentence, Tree tree, List<TypedDependency> deps, int wordIndex) {
+  private Counter<String> getEventFeatures(SentenceFeatures sentence, int wordIndex) {
     Counter<String> features = new ClassicCounter<String>();
-    List<CoreLabel> tokens = sentence.tokens();//sentence.sentence().toLowerCase().split("\\s+");
-    int size = tokens.size();
+    int size = sentence.size;
 
-    String token = tokens.get(wordIndex-1).getString(CoreAnnotations.OriginalTextAnnotation.class).toLowerCase();
+    String token = sentence.tokens[wordIndex];
     String tokenPre1 = "<s>";
     String tokenPre2 = "<s>";
-    if( wordIndex > 1 ) tokenPre1 = tokens.get(wordIndex-2).getString(CoreAnnotations.OriginalTextAnnotation.class).toLowerCase();
-    if( wordIndex > 2 ) tokenPre2 = tokens.get(wordIndex-3).getString(CoreAnnotations.OriginalTextAnnotation.class).toLowerCase();
+    if( wordIndex > 1 ) tokenPre1 = sentence.tokens[wordIndex-1];
+    if( wordIndex > 2 ) tokenPre2 = sentence.tokens[wordIndex-2];
     String tokenPost1 = "</s>";
     String tokenPost2 = "</s>";
-    if( wordIndex < size ) tokenPost1 = tokens.get(wordIndex).getString(CoreAnnotations.OriginalTextAnnotation.class).toLowerCase();
-    if( wordIndex < size-1 ) tokenPost2 = tokens.get(wordIndex+1).getString(CoreAnnotations.OriginalTextAnnotation.class).toLowerCase();
+    if( wordIndex < size ) tokenPost1 = sentence.tokens[wordIndex+1];
+    if( wordIndex < size-1 ) tokenPost2 = sentence.tokens[wordIndex+2];
 
     // N-grams.
     features.incrementCount(token);
@@ -173,11 +248,11 @@ public class TextEventClassifier {
     features.incrementCount("POST-" + tokenPost1 + "-" + tokenPost2);
 
     // POS n-grams. (1, 2, 3-gram)
-    String pos = TreeOperator.indexToPOSTag(tree, wordIndex);
+    String pos = sentence.pos[wordIndex];
     String posPre1 = "<s>";
     String posPre2 = "<s>";
-    if( wordIndex > 1 ) posPre1 = TreeOperator.indexToPOSTag(tree, wordIndex-1);
-    if( wordIndex > 2 ) posPre2 = TreeOperator.indexToPOSTag(tree, wordIndex-2);
+    if( wordIndex > 1 ) posPre1 = sentence.pos[wordIndex-1];
+    if( wordIndex > 2 ) posPre2 = sentence.pos[wordIndex-2];
     features.incrementCount(pos);
     features.incrementCount(posPre1 + "-" + pos);
     features.incrementCount(posPre2 + "-" + posPre1 + "-" + pos);
@@ -187,16 +262,12 @@ public class TextEventClassifier {
     if( pos != null && pos.startsWith("NN") ) features.incrementCount("IS-WORDNET-EV-" + wordnet.isNounEvent(token));
     
     // Parse path to Sentence node.
-    String path = pathToSTag(tree, wordIndex);
+    String path = sentence.paths[wordIndex];
     features.incrementCount("PATH-" + path);
 
     // Typed Dependency triples with which this word is involved.
-    for( TypedDependency dep : deps ) {
-    	if( dep.gov().index() == wordIndex )
-    		features.incrementCount("DEPG-" + dep.reln());
-    	else if( dep.dep().index() == wordIndex )
-    		features.incrementCount("DEPD-" + dep.reln());
-    }
+    for( String dep : sentence.depFeats.get(wordIndex) )
+      features.incrementCount(dep);
     	
     return features;
   }
@@ -229,7 +300,7 @@ public class TextEventClassifier {
         	List<CoreLabel> tokens = sentence.tokens();
 //          String[] tokens = sentence.sentence().split("\\s+");
           List<TextEvent> events = sentence.events();
-          Tree tree = sentence.getParseTree();
+          SentenceFeatures sentFeatures = new SentenceFeatures(sentence, sentence.getParseTree(), alldeps.get(sid));
 
           // Grab the word indices of each event.
           Map<Integer,TextEvent> index = new HashMap<Integer,TextEvent>();
@@ -238,7 +309,7 @@ public class TextEventClassifier {
 
           // Create the dataset!
           for( int xx = 1; xx <= tokens.size(); xx++ ) {
-            Counter<String> features = getEventFeatures(sentence, tree, alldeps.get(sid), xx);
+            Counter<String> features = getEventFeatures(sentFeatures, xx);
             RVFDatum<String,String> datum = new RVFDatum<String,String>(features, (index.containsKey(xx) ? "event" : "notevent"));
             eventDataset.add(datum);
 //            System.out.println("event datum: " + datum);
@@ -309,26 +380,28 @@ public class TextEventClassifier {
    * @return True if the word at wordi is an event, false otherwise.
    */
   public boolean isEvent(Classifier<String, String> classifier, SieveSentence sentence, Tree tree, List<TypedDependency> deps, int wordi) {
-  	String postag = TreeOperator.indexToPOSTag(tree, wordi);
+  	RVFDatum<String,String> datum = candidateDatum(new SentenceFeatures(sentence, tree, deps), wordi);
+  	return datum != null && classifier.classOf(datum).equals("event");
+  }
+
+  /**
+   * Featurize a word if its POS tag makes it a possible event.
+   * @param wordi The word index in the sentence, starting from 1
+   * @return The word's unlabeled datum, or null if it can't be an event.
+   */
+  private RVFDatum<String,String> candidateDatum(SentenceFeatures sentence, int wordi) {
+  	String postag = sentence.pos[wordi];
 
   	// Only consider tokens with specific POS tags.
-  	if( postag.startsWith("NN") || postag.startsWith("VB") || postag.startsWith("J") ||
+  	if( postag != null && (postag.startsWith("NN") || postag.startsWith("VB") || postag.startsWith("J") ||
   			// "behind* the killings"
   			postag.equalsIgnoreCase("IN") ||
   			// "the lights are out*"
-  			postag.equalsIgnoreCase("RP") ) {
-  		Counter<String> features = getEventFeatures(sentence, tree, deps, wordi);
-  		RVFDatum<String,String> datum = new RVFDatum<String,String>(features, null);
-  		String guess = classifier.classOf(datum);
-  		return guess.equals("event");
+  			postag.equalsIgnoreCase("RP")) ) {
+  		Counter<String> features = getEventFeatures(sentence, wordi);
+  		return new RVFDatum<String,String>(features, null);
   	}
-  	else return false;
-  }
-  
-  private RVFDatum<String,String> wordToDatum(SieveSentence sentence, Tree tree, List<TypedDependency> deps, int wordi) {
-  	Counter<String> features = getEventFeatures(sentence, tree, deps, wordi);
-    RVFDatum<String,String> datum = new RVFDatum<String,String>(features, null);
-    return datum;
+  	else return null;
   }
   
   /**
@@ -411,6 +484,7 @@ public class TextEventClassifier {
           Set<Integer> timexIndices = indicesCoveredByTimexes(sent.timexes());
 
           if( tree != null && tree.size() > 1 ) {
+          	SentenceFeatures sentFeatures = (useDeterministic ? null : new SentenceFeatures(sent, tree, alldeps.get(sid)));
           	// Each token.
           	int wordi = 1; // first word is index 1
           	for( CoreLabel token : sent.tokens() ) {
@@ -427,13 +501,14 @@ public class TextEventClassifier {
           				eventi++;
           			}
 
-          			if( !useDeterministic && isEvent(eventClassifier, sent, tree, alldeps.get(sid), wordi) ) {
+          			// The same datum decides event or not, then tense, aspect and class.
+          			RVFDatum<String,String> datum = (useDeterministic ? null : candidateDatum(sentFeatures, wordi));
+          			if( datum != null && eventClassifier.classOf(datum).equals("event") ) {
               		String tokenStr = token.getString(CoreAnnotations.OriginalTextAnnotation.class);
           				TextEvent event = new TextEvent(tokenStr, "e" + eventi, sid, wordi);
           				event.addEiid("ei" + eventi);
 
           				// Set the event attributes.
-          				RVFDatum<String,String> datum = wordToDatum(sent, tree, alldeps.get(sid), wordi);
           				//                System.out.println("datum: " + datum);
           				//                System.out.println("\taspect: " + aspectClassifier.classOf(datum));
           				event.setTense(TextEvent.Tense.valueOf(tenseClassifier.classOf(datum)));
@@ -485,14 +560,14 @@ public class TextEventClassifier {
   }
   
   /**
-   * Read all serialized classifiers into memory.
+   * Get the shared serialized classifiers, reading them into memory if they aren't yet.
    */
   public void loadClassifiers() {
   	String base = "/models/" + baseModelName;
-  	eventClassifier  = Util.readClassifierFromFile(this.getClass().getResource(base));
-  	tenseClassifier  = Util.readClassifierFromFile(this.getClass().getResource(base + "-tense"));
-  	aspectClassifier = Util.readClassifierFromFile(this.getClass().getResource(base + "-aspect"));
-  	classClassifier  = Util.readClassifierFromFile(this.getClass().getResource(base + "-class"));
+  	eventClassifier  = ModelRegistry.getClassifier(base);
+  	tenseClassifier  = ModelRegistry.getClassifier(base + "-tense");
+  	aspectClassifier = ModelRegistry.getClassifier(base + "-aspect");
+  	classClassifier  = ModelRegistry.getClassifier(base + "-class");
   }
   
   public void readClassifiersFromDirectory(String dir) {
@@ -0,0 +1,259 @@
+package caevo;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import caevo.util.Directory;
+import caevo.util.HandleParameters;
+import caevo.util.Util;
+
+/**
+ * End-to-end throughput of the CAEVO pipeline, for capacity planning and for checking what
+ * the parallel and caching options buy.
+ *
+ * Sieve mode (the default) reads a SieveDocuments file, removes its tlinks, and runs the sieve
+ * list (-Dsieves, default.sieves) over every document. Raw mode parses and marks up text files
+ * from scratch, as raw markup does. Each mode runs the whole input several times after some
+ * warmup runs, and reports documents/sec, sentences/sec, links/sec, the p50 and p99 latency of
+ * a single document, and the peak heap used during the measured runs.
+ *
+ * ThroughputBenchmark [-info <sieve-xml>] [-runs <n>] [-warmup <n>] [-threads <n>]
+ * ThroughputBenchmark -raw <text-file-or-dir> [-dct <yyyy-mm-dd>] [-runs <n>] [-warmup <n>] [-threads <n>]
+ *
+ * Set Main.debug=false in the properties, or the sieve output dominates the timings.
+ * Raw mode uses Main.parseThreads and Main.parseCache like raw markup; with a parse cache, every
+ * run after the first one skips the parser.
+ */
+public class ThroughputBenchmark {
+  public static final String DEFAULT_INFO = "src/main/resources/tempeval3-timebankonly-SIEVE.xml";
+  public static final String DEFAULT_RAW = "src/test/resources/news.txt";
+
+  private final CaevoPipeline pipeline;
+  private final int threads;
+
+  public ThroughputBenchmark(CaevoPipeline pipeline, int threads) {
+    this.pipeline = pipeline;
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * The documents processed in one run, and how long each took.
+   */
+  static class Run {
+    long wallNanos;
+    int docs, sentences, links;
+    long[] docNanos;
+  }
+
+  /**
+   * One run of the sieves over every document in the file. Reading the file isn't timed.
+   */
+  public Run runSieves(String infopath) throws Exception {
+    SieveDocuments docs = new SieveDocuments(infopath);
+    final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+    for( final SieveDocument doc : docs.getDocuments() ) {
+      doc.removeTlinks();
+      tasks.add(new Callable<Integer>() {
+        public Integer call() {
+          pipeline.runSieves(doc);
+          return doc.getTlinks() == null ? 0 : doc.getTlinks().size();
+        }
+      });
+    }
+    return timeTasks(docs.getDocuments(), tasks);
+  }
+
+  /**
+   * One run of full raw text markup over the given texts.
+   */
+  public Run runRaw(final List<String> names, final List<String> texts, final String dct) throws Exception {
+    final List<SieveDocument> docs = new ArrayList<SieveDocument>();
+    final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+    for( int ii = 0; ii < texts.size(); ii++ ) {
+      docs.add(null);
+      final int index = ii;
+      tasks.add(new Callable<Integer>() {
+        public Integer call() {
+          SieveDocument doc = pipeline.process(names.get(index), texts.get(index), dct);
+          synchronized( docs ) { docs.set(index, doc); }
+          return doc.getTlinks() == null ? 0 : doc.getTlinks().size();
+        }
+      });
+    }
+    return timeTasks(docs, tasks);
+  }
+
+  /**
+   * Runs one task per document, on this benchmark's threads, timing each one and the whole set.
+   * @param docs The documents the tasks process, for counting sentences once they are done.
+   */
+  private Run timeTasks(List<SieveDocument> docs, List<Callable<Integer>> tasks) throws Exception {
+    Run run = new Run();
+    run.docNanos = new long[tasks.size()];
+    ExecutorService pool = (threads > 1 ? Executors.newFixedThreadPool(threads) : null);
+
+    long start = System.nanoTime();
+    List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+    for( int ii = 0; ii < tasks.size(); ii++ ) {
+      Callable<Integer> timed = timed(tasks.get(ii), run.docNanos, ii);
+      if( pool == null ) run.links += timed.call();
+      else futures.add(pool.submit(timed));
+    }
+    for( Future<Integer> future : futures )
+      run.links += future.get();
+    run.wallNanos = System.nanoTime() - start;
+    if( pool != null ) pool.shutdown();
+
+    for( SieveDocument doc : docs ) {
+      run.docs++;
+      if( doc.getSentences() != null ) run.sentences += doc.getSentences().size();
+    }
+    return run;
+  }
+
+  private static Callable<Integer> timed(final Callable<Integer> task, final long[] times, final int index) {
+    return new Callable<Integer>() {
+      public Integer call() throws Exception {
+        long start = System.nanoTime();
+        Integer result = task.call();
+        times[index] = System.nanoTime() - start;
+        return result;
+      }
+    };
+  }
+
+  /**
+   * Print throughput and latency over all the measured runs.
+   */
+  static void report(String label, List<Run> runs, long peakHeapBytes) {
+    long wall = 0;
+    int docs = 0, sentences = 0, links = 0, numLatencies = 0;
+    for( Run run : runs ) {
+      wall += run.wallNanos;
+      docs += run.docs;
+      sentences += run.sentences;
+      links += run.links;
+      numLatencies += run.docNanos.length;
+    }
+    long[] latencies = new long[numLatencies];
+    int ii = 0;
+    for( Run run : runs )
+      for( long nanos : run.docNanos )
+        latencies[ii++] = nanos;
+    Arrays.sort(latencies);
+
+    double seconds = wall / 1e9;
+    System.out.println("===== " + label + " =====");
+    System.out.printf("Runs:\t\t%d (%d documents, %d sentences, %d links each)\n", runs.size(),
+        runs.get(0).docs, runs.get(0).sentences, runs.get(0).links);
+    System.out.printf("Time:\t\t%.2f sec\n", seconds);
+    System.out.printf("Documents/sec:\t%.2f\n", docs / seconds);
+    System.out.printf("Sentences/sec:\t%.2f\n", sentences / seconds);
+    System.out.printf("Links/sec:\t%.2f\n", links / seconds);
+    System.out.printf("Latency p50:\t%.2f ms\n", percentile(latencies, 50) / 1e6);
+    System.out.printf("Latency p99:\t%.2f ms\n", percentile(latencies, 99) / 1e6);
+    System.out.printf("Peak heap:\t%.1f MB\n", peakHeapBytes / (1024.0 * 1024.0));
+  }
+
+  /**
+   * @return The value at the given percentile of sorted values (nearest rank).
+   */
+  static long percentile(long[] sorted, int percent) {
+    if( sorted.length == 0 ) return 0;
+    int rank = (int)Math.ceil(percent / 100.0 * sorted.length);
+    return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+  }
+
+  private static void resetPeakHeap() {
+    for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+      if( pool.getType() == MemoryType.HEAP )
+        pool.resetPeakUsage();
+  }
+
+  /**
+   * @return The sum of each heap pool's peak usage since the last reset.
+   */
+  private static long peakHeap() {
+    long peak = 0;
+    for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+      if( pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null )
+        peak += pool.getPeakUsage().getUsed();
+    return peak;
+  }
+
+  /**
+   * @return The text files to mark up: the given file, or every file in the given directory.
+   */
+  private static List<String> rawPaths(String path) {
+    List<String> paths = new ArrayList<String>();
+    if( new File(path).isDirectory() ) {
+      for( String file : Directory.getFilesSorted(path) )
+        paths.add(path + File.separator + file);
+    }
+    else paths.add(path);
+    return paths;
+  }
+
+  public static void main(String[] args) {
+    HandleParameters params = new HandleParameters(args);
+    int runs = params.hasFlag("-runs") ? Integer.parseInt(params.get("-runs")) : 5;
+    int warmup = params.hasFlag("-warmup") ? Integer.parseInt(params.get("-warmup")) : 2;
+    int threads = params.hasFlag("-threads") ? Integer.parseInt(params.get("-threads")) : 1;
+    boolean raw = params.hasFlag("-raw");
+    String infopath = params.hasFlag("-info") ? params.get("-info") : DEFAULT_INFO;
+
+    CaevoPipeline pipeline = null;
+    try {
+      pipeline = new CaevoPipeline();
+    } catch( IOException ex ) {
+      System.out.println("ERROR: couldn't initialize the pipeline.");
+      ex.printStackTrace();
+      System.exit(1);
+    }
+    ThroughputBenchmark bench = new ThroughputBenchmark(pipeline, threads);
+
+    try {
+      List<String> names = new ArrayList<String>();
+      List<String> texts = new ArrayList<String>();
+      if( raw ) {
+        String path = (params.get("-raw") == null || params.get("-raw").length() == 0) ? DEFAULT_RAW : params.get("-raw");
+        for( String file : rawPaths(path) ) {
+          // Same text and document name as raw markup gives the parser.
+          List<String> lines = Util.readLinesFromFile(file);
+          StringBuilder text = new StringBuilder(lines.get(0));
+          for( int xx = 1; xx < lines.size(); xx++ ) text.append("\n").append(lines.get(xx));
+          names.add(file);
+          texts.add(text.toString());
+        }
+      }
+      String label = (raw ? "Raw markup" : "Sieves on " + infopath) + ", " + threads + " thread(s)";
+
+      List<Run> measured = new ArrayList<Run>();
+      for( int rr = 0; rr < warmup + runs; rr++ ) {
+        if( rr == warmup ) {
+          System.gc();
+          resetPeakHeap();
+        }
+        Run run = raw ? bench.runRaw(names, texts, params.get("-dct")) : bench.runSieves(infopath);
+        System.out.printf("%s run %d: %.2f sec\n", (rr < warmup ? "Warmup" : "Measured"), rr + 1, run.wallNanos / 1e9);
+        if( rr >= warmup ) measured.add(run);
+      }
+      if( measured.size() > 0 )
+        report(label, measured, peakHeap());
+    } catch( Exception ex ) {
+      System.out.println("ERROR: benchmark failed");
+      ex.printStackTrace();
+      System.exit(1);
+    }
+  }
+}
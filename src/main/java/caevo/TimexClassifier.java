@@ -1,16 +1,22 @@
 package caevo;
 
+import caevo.util.CaevoProperties;
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.TaggedWord;
 import edu.stanford.nlp.pipeline.*;
 import edu.stanford.nlp.time.SUTimeMain;
 import edu.stanford.nlp.time.TimeAnnotations;
 import edu.stanford.nlp.time.TimeAnnotator;
 import edu.stanford.nlp.time.TimeExpression;
+import edu.stanford.nlp.trees.Tree;
 import edu.stanford.nlp.util.CoreMap;
 import org.w3c.dom.Element;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
@@ -21,6 +27,12 @@ import java.util.Properties;
  * It includes some specific rules about fiscal quarters that fixes incorrect SUTime
  * performance on the finance genre.
  *
+ * By default each sentence is re-tokenized and POS tagged before SUTime runs. With the property
+ * TimexClassifier.reuseTokens=true, the sentence's own tokens and the POS tags from its parse
+ * tree go straight to SUTime instead, which skips a full tagging pass per sentence.
+ * TimexClassifier.batchDocument=true goes further and sends all of a document's sentences
+ * to SUTime in a single call (also with the parse tree tags).
+ *
  * @author chambers
  */
 public class TimexClassifier {
@@ -29,14 +41,24 @@ public class TimexClassifier {
 //  private String _nerPath = "edu/stanford/nlp/models/ner/english.all.3class.distsim.crf.ser.gz";
 
   boolean debug = false;
+  boolean reuseTokens = false;
+  boolean batchDocument = false;
   
-  AnnotationPipeline timexPipeline = null;
+  AnnotationPipeline timexPipeline = null;   // tokenize, POS tag, then SUTime
+  AnnotationPipeline timeOnlyPipeline = null; // just SUTime, for already tagged tokens
   
 
   public TimexClassifier() {
+    try {
+      reuseTokens = CaevoProperties.getBoolean("TimexClassifier.reuseTokens", false);
+      batchDocument = CaevoProperties.getBoolean("TimexClassifier.batchDocument", false);
+    } catch( IOException ex ) { }
 
   	// Load the pipeline of annotations needed for Timex markup.
-    timexPipeline = getPipeline(true);
+    if( reuseTokens || batchDocument )
+      timeOnlyPipeline = getPipeline(false, false);
+    else
+      timexPipeline = getPipeline(true, true);
   }
 
 
@@ -91,6 +113,8 @@ public class TimexClassifier {
       }
       String docDate = (dcts != null && dcts.size() > 0) ? dcts.get(0).getValue() : null;
       if( debug ) System.out.println("markupTimex3 docDate = " + docDate);
+      if( batchDocument && markupDocumentTimex3(doc, docDate) )
+        continue;
 //      System.out.println(sentences.size() + " sentences.");
             int tid = 1;
 
@@ -101,7 +125,7 @@ public class TimexClassifier {
 //      	List<CoreLabel> theTokens = preprocessTokens(sent.tokens());
 
                 System.out.println("TimexClassifier markupTimex3 tokens = " + sent.tokens());
-                List<Timex> stanfordTimex = markupTimex3(sent.tokens(), tid, docDate);
+                List<Timex> stanfordTimex = markupTimex3(sent, tid, docDate);
                 myRevisedTimex3(stanfordTimex, docDate);
                 tid += stanfordTimex.size();
 
@@ -176,6 +200,169 @@ public class TimexClassifier {
         return current;
     }
 
+    /**
+     * Mark up one sentence, with its own tokens and parse tree tags if reuseTokens is set.
+     * Sentences whose parse tree doesn't line up with their tokens are re-tagged as usual.
+     */
+    private List<Timex> markupTimex3(SieveSentence sent, int idcounter, String docDate) {
+        if (reuseTokens) {
+            List<CoreLabel> tagged = taggedTokens(sent);
+            if (tagged != null) {
+                if (timeOnlyPipeline == null)
+                    timeOnlyPipeline = getPipeline(false, false);
+                Annotation annotation = taggedTokensToAnnotation(Collections.singletonList(tagged), docDate);
+                timeOnlyPipeline.annotate(annotation);
+                return timexesFromAnnotation(annotation, tagged, idcounter);
+            }
+            if (debug) System.out.println("Parse tree doesn't match the tokens, re-tagging sentence " + sent.sid());
+        }
+        return markupTimex3(sent.tokens(), idcounter, docDate);
+    }
+
+    /**
+     * Mark up a whole document with a single SUTime call instead of one call per sentence. Each
+     * timex is mapped back to its sentence and token span by its character offsets, and the tids
+     * are numbered in the same order as per-sentence markup numbers them.
+     *
+     * @return False if some sentence's parse tree doesn't match its tokens. Nothing is added then.
+     */
+    private boolean markupDocumentTimex3(SieveDocument doc, String docDate) {
+        List<SieveSentence> sentences = doc.getSentences();
+        List<List<CoreLabel>> tagged = new ArrayList<List<CoreLabel>>();
+        for (SieveSentence sent : sentences) {
+            List<CoreLabel> tokens = taggedTokens(sent);
+            if (tokens == null) {
+                if (debug) System.out.println("Parse tree doesn't match the tokens in sentence " + sent.sid() + ", marking up one sentence at a time");
+                return false;
+            }
+            tagged.add(tokens);
+        }
+
+        if (timeOnlyPipeline == null)
+            timeOnlyPipeline = getPipeline(false, false);
+        Annotation annotation = taggedTokensToAnnotation(tagged, docDate);
+        timeOnlyPipeline.annotate(annotation);
+
+        // Document character offset of every token, to find where each timex starts and ends.
+        List<CoreLabel> allTokens = annotation.get(CoreAnnotations.TokensAnnotation.class);
+        int[] begins = new int[allTokens.size()];
+        for (int xx = 0; xx < begins.length; xx++)
+            begins[xx] = allTokens.get(xx).beginPosition();
+
+        List<List<Timex>> sentTimexes = new ArrayList<List<Timex>>();
+        for (int sid = 0; sid < sentences.size(); sid++)
+            sentTimexes.add(new ArrayList<Timex>());
+        List<CoreMap> labels = annotation.get(TimeAnnotations.TimexAnnotations.class);
+        removeRangesAndNested(labels);
+        for (CoreMap label : labels) {
+            CoreLabel first = allTokens.get(tokenAt(begins, label.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class)));
+            CoreLabel last = allTokens.get(tokenAt(begins, label.get(CoreAnnotations.CharacterOffsetEndAnnotation.class) - 1));
+            int sid = first.get(CoreAnnotations.SentenceIndexAnnotation.class);
+            if (sid != last.get(CoreAnnotations.SentenceIndexAnnotation.class)) {
+                System.out.println("TimexClassifier WARNING: timex crosses sentences, skipping: " + label);
+                continue;
+            }
+            sentTimexes.get(sid).add(toTimex(label, first.index(), last.index() + 1));
+        }
+
+        // Same steps and tid order as the sentence loop in markupTimex3(SieveDocuments).
+        int tid = 1;
+        for (int sid = 0; sid < sentences.size(); sid++) {
+            List<Timex> newtimexes = new ArrayList<Timex>();
+            for (Timex newtimex : sentTimexes.get(sid)) {
+                if (!falseSecond(newtimex, tagged.get(sid)) && !falseDays(newtimex)) {
+                    newtimex.setTid("t" + tid++);
+                    if (debug) System.out.println("NEW SUTIME TIMEX: " + newtimex);
+                    newtimexes.add(newtimex);
+                }
+            }
+            myRevisedTimex3(newtimexes, docDate);
+            removeConflictingTimexesWithEvents(newtimexes, sentences.get(sid));
+            doc.addTimexes(sid, newtimexes);
+        }
+        return true;
+    }
+
+    /**
+     * @return The index of the token that contains the given character offset.
+     */
+    private static int tokenAt(int[] begins, int offset) {
+        int index = Arrays.binarySearch(begins, offset);
+        return (index >= 0 ? index : Math.max(0, -index - 2));
+    }
+
+    /**
+     * Copy a sentence's tokens into new CoreLabels for SUTime, with the words and POS tags from the
+     * sentence's parse tree. Character offsets are into the space-separated original text of the
+     * tokens, as buildStringFromCoreLabels() makes it.
+     *
+     * @return The tagged tokens, or null if there is no parse tree or it has a different number of words.
+     */
+    private List<CoreLabel> taggedTokens(SieveSentence sent) {
+        List<CoreLabel> tokens = sent.tokens();
+        Tree tree = (sent.parseString() == null ? null : sent.getParseTree());
+        if (tokens == null || tree == null) return null;
+        List<TaggedWord> tagged = tree.taggedYield();
+        if (tagged.size() != tokens.size()) return null;
+
+        List<CoreLabel> labels = new ArrayList<CoreLabel>(tokens.size());
+        int offset = 0;
+        for (int xx = 0; xx < tokens.size(); xx++) {
+            String original = tokens.get(xx).getString(CoreAnnotations.OriginalTextAnnotation.class);
+            CoreLabel label = new CoreLabel();
+            label.setWord(tagged.get(xx).word());
+            label.setValue(tagged.get(xx).word());
+            label.setOriginalText(original);
+            label.setTag(tagged.get(xx).tag());
+            label.setIndex(xx + 1);
+            label.setBeginPosition(offset);
+            label.setEndPosition(offset + original.length());
+            label.set(CoreAnnotations.BeforeAnnotation.class, (xx == 0 ? "" : " "));
+            label.set(CoreAnnotations.AfterAnnotation.class, (xx == tokens.size() - 1 ? "" : " "));
+            labels.add(label);
+            offset += original.length() + 1;
+        }
+        return labels;
+    }
+
+    /**
+     * Wrap sentences of tagged tokens in the document Annotation that TimeAnnotator expects, as if
+     * the tokenizer, sentence splitter and tagger had produced it. The sentences are joined by
+     * newlines, and each token's character offsets are moved from its sentence to the document.
+     */
+    private Annotation taggedTokensToAnnotation(List<List<CoreLabel>> sentences, String docDate) {
+        StringBuilder text = new StringBuilder();
+        List<CoreLabel> allTokens = new ArrayList<CoreLabel>();
+        List<CoreMap> sentenceMaps = new ArrayList<CoreMap>();
+        for (List<CoreLabel> tokens : sentences) {
+            if (sentenceMaps.size() > 0) text.append('\n');
+            int sentBegin = text.length();
+            String sentText = buildStringFromCoreLabels(tokens, 0, tokens.size());
+            for (CoreLabel token : tokens) {
+                token.setBeginPosition(token.beginPosition() + sentBegin);
+                token.setEndPosition(token.endPosition() + sentBegin);
+                token.set(CoreAnnotations.SentenceIndexAnnotation.class, sentenceMaps.size());
+            }
+
+            Annotation sentence = new Annotation(sentText);
+            sentence.set(CoreAnnotations.TokensAnnotation.class, tokens);
+            sentence.set(CoreAnnotations.CharacterOffsetBeginAnnotation.class, sentBegin);
+            sentence.set(CoreAnnotations.CharacterOffsetEndAnnotation.class, sentBegin + sentText.length());
+            sentence.set(CoreAnnotations.TokenBeginAnnotation.class, allTokens.size());
+            sentence.set(CoreAnnotations.TokenEndAnnotation.class, allTokens.size() + tokens.size());
+            sentence.set(CoreAnnotations.SentenceIndexAnnotation.class, sentenceMaps.size());
+            sentenceMaps.add(sentence);
+            text.append(sentText);
+            allTokens.addAll(tokens);
+        }
+
+        Annotation annotation = new Annotation(text.toString());
+        annotation.set(CoreAnnotations.DocDateAnnotation.class, docDate);
+        annotation.set(CoreAnnotations.TokensAnnotation.class, allTokens);
+        annotation.set(CoreAnnotations.SentencesAnnotation.class, sentenceMaps);
+        return annotation;
+    }
+
     /**
      * Given a single sentence (represented as a pre-tokenized list of HasWord objects), use stanford's
      * SUTime to identify temporal entities and mark them up as TIMEX3 elements.
@@ -192,10 +379,12 @@ public class TimexClassifier {
     private List<Timex> markupTimex3(List<CoreLabel> words, int idcounter, String docDate) {
         // Load the pipeline of annotations needed for Timex markup.
         if (timexPipeline == null)
-            timexPipeline = getPipeline(true);
+            timexPipeline = getPipeline(true, true);
 
         // Extract TIMEX3 entities.
         Annotation annotation = SUTimeMain.textToAnnotation(timexPipeline, buildStringFromCoreLabels(words, 0, words.size()), docDate);
+        return timexesFromAnnotation(annotation, words, idcounter);
+    }
 
 /*    // Print TIMEX3 results.
     List<CoreLabel> sutimeTokens = annotation.get(CoreAnnotations.TokensAnnotation.class);
@@ -222,10 +411,36 @@ public class TimexClassifier {
     System.out.println("TIMEXED!"); System.out.println(XMLUtils.documentToString(xmlDoc));
 */
 
+    /**
+     * Create Timex objects from the TIMEX3 entities SUTime found in a one sentence annotation.
+     *
+     * @param words     The sentence's words, for checking POS tags.
+     * @param idcounter A number to use for an ID of the first timex, and increment from there.
+     */
+    private List<Timex> timexesFromAnnotation(Annotation annotation, List<CoreLabel> words, int idcounter) {
         // Create my Timex objects from Stanford's Timex objects.
         List<Timex> newtimexes = new ArrayList<Timex>();
         List<CoreMap> labels = annotation.get(TimeAnnotations.TimexAnnotations.class);
+        removeRangesAndNested(labels);
 
+        for (CoreMap label : labels) {
+            // Stanford Timex starts at index 0 in the sentence, not index 1.
+            Timex newtimex = toTimex(label, label.get(CoreAnnotations.TokenBeginAnnotation.class) + 1, label.get(CoreAnnotations.TokenEndAnnotation.class) + 1);
+            if (!falseSecond(newtimex, words) && !falseDays(newtimex)) {
+                // workaround for sutime nonsense
+                newtimex.setTid("t" + idcounter++);
+                if (debug) System.out.println("NEW SUTIME TIMEX: " + newtimex);
+                newtimexes.add(newtimex);
+            }
+        }
+        return newtimexes;
+    }
+
+    /**
+     * DESTRUCTIVE: removes from SUTime's timexes the "from... to..." ranges, which are broken up
+     * into their endpoints, and any timex nested inside another one.
+     */
+    private void removeRangesAndNested(List<CoreMap> labels) {
         // look for elaborate ranges, break them up to their endpoints
         List<CoreMap> rejects = new LinkedList<CoreMap>();
         for (CoreMap label : labels) {
@@ -250,29 +465,27 @@ public class TimexClassifier {
         }
 
         labels.removeAll(rejects);
+    }
 
-
-        for (CoreMap label : labels) {
-            edu.stanford.nlp.time.Timex stanfordTimex = label.get(TimeAnnotations.TimexAnnotation.class);
-            Element stanfordElement = stanfordTimex.toXmlElement();
-            Timex newtimex = new Timex();
-            newtimex.setType(Timex.Type.valueOf(stanfordElement.getAttribute("type")));
-            newtimex.setValue(stanfordElement.getAttribute("value"));
-            newtimex.setText(stanfordElement.getTextContent());
-            String docFnStr = stanfordElement.getAttribute("functionInDocument");
-            if (docFnStr != null && !docFnStr.isEmpty()) {
-                newtimex.setDocumentFunction(Timex.DocumentFunction.valueOf(docFnStr));
-            }
-            // Stanford Timex starts at index 0 in the sentence, not index 1.
-            newtimex.setSpan(label.get(CoreAnnotations.TokenBeginAnnotation.class) + 1, label.get(CoreAnnotations.TokenEndAnnotation.class) + 1);
-            if (!falseSecond(newtimex, words) && !falseDays(newtimex)) {
-                // workaround for sutime nonsense
-                newtimex.setTid("t" + idcounter++);
-                if (debug) System.out.println("NEW SUTIME TIMEX: " + newtimex);
-                newtimexes.add(newtimex);
-            }
+    /**
+     * Create my Timex object (without a tid) from one of Stanford's.
+     *
+     * @param begin The sentence index of the first token, starting at 1.
+     * @param end   One past the sentence index of the last token.
+     */
+    private Timex toTimex(CoreMap label, int begin, int end) {
+        edu.stanford.nlp.time.Timex stanfordTimex = label.get(TimeAnnotations.TimexAnnotation.class);
+        Element stanfordElement = stanfordTimex.toXmlElement();
+        Timex newtimex = new Timex();
+        newtimex.setType(Timex.Type.valueOf(stanfordElement.getAttribute("type")));
+        newtimex.setValue(stanfordElement.getAttribute("value"));
+        newtimex.setText(stanfordElement.getTextContent());
+        String docFnStr = stanfordElement.getAttribute("functionInDocument");
+        if (docFnStr != null && !docFnStr.isEmpty()) {
+            newtimex.setDocumentFunction(Timex.DocumentFunction.valueOf(docFnStr));
         }
-        return newtimexes;
+        newtimex.setSpan(begin, end);
+        return newtimex;
     }
 
     /**
@@ -280,7 +493,7 @@ public class TimexClassifier {
      * We could better integrate this with the parsing of the sentences, rather than starting from scratch again.
      * Performance gains would basically just avoid tokenizing and POS tagging.
      */
-    private AnnotationPipeline getPipeline(boolean tokenize) {
+    private AnnotationPipeline getPipeline(boolean tokenize, boolean tag) {
         Properties props = new Properties();
         props.setProperty("sutime.includeRange", "true");
         props.setProperty("sutime.includeNested", "true");
@@ -290,7 +503,8 @@ public class TimexClassifier {
             pipeline.addAnnotator(new TokenizerAnnotator(false));
             pipeline.addAnnotator(new WordsToSentencesAnnotator(false));
         }
-        pipeline.addAnnotator(new POSTaggerAnnotator(false));
+        if (tag)
+            pipeline.addAnnotator(new POSTaggerAnnotator(false));
         pipeline.addAnnotator(new TimeAnnotator("sutime", props));
 
         return pipeline;
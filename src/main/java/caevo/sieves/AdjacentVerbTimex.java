@@ -57,7 +57,7 @@ import java.util.regex.Pattern;
  *
  * @author cassidy
  */
-public class AdjacentVerbTimex implements Sieve {
+public class AdjacentVerbTimex implements WordNetSieve {
 
     public boolean debug = false;
     private boolean EVENT_BEFORE_TIMEX = true;
@@ -66,6 +66,7 @@ public class AdjacentVerbTimex implements Sieve {
     private boolean TIMEX_GOVERNS_EVENT = true;
     private int numInterWords = 0;
     private boolean nounEvent = false;
+    private WordNet wordnet;
 
     // Exclude timex that refer to "quarters" using this regex to be
     // applied to timex.value, since such a timex usually modifies an
@@ -76,6 +77,10 @@ public class AdjacentVerbTimex implements Sieve {
 
     private EventTimeLink between_and;
 
+    public void setWordNet(WordNet wordnet) {
+        this.wordnet = wordnet;
+    }
+
     /**
      * The main function. All sieves must have this.
      */
@@ -535,7 +540,9 @@ public class AdjacentVerbTimex implements Sieve {
         }
         // option c: an event noun
         if (eventPos.startsWith("N")) {
-            return nounEvent = new WordNet().isNounEvent(event.getString());
+            // Outside a pipeline, use a WordNet of our own.
+            if (wordnet == null) wordnet = new WordNet();
+            return nounEvent = wordnet.isNounEvent(event.getString());
         }
         return false;
     }
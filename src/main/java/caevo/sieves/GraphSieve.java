@@ -0,0 +1,25 @@
+package caevo.sieves;
+
+import java.util.List;
+
+import caevo.SieveDocument;
+import caevo.tlink.LinkGraph;
+import caevo.tlink.TLink;
+
+/**
+ * A sieve that can read the current links as a LinkGraph, so it can look up links by
+ * event/time pair or by endpoint instead of scanning the list. Main calls this version
+ * of annotate() for sieves that implement it, and the List version otherwise.
+ */
+public interface GraphSieve extends Sieve {
+
+	/**
+	 * Annotate a single document, the same as Sieve.annotate() but given the links created by
+	 * all previous sieves as a graph.
+	 * 
+	 * @param doc The pre-processed document information.
+	 * @param currentTLinks The TLinks created by all previous sieves above this one. Do not modify.
+	 * @return A list of new TLinks for the document (do not include current tlinks).
+	 */
+	public List<TLink> annotate(SieveDocument doc, LinkGraph currentTLinks);
+}
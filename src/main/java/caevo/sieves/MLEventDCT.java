@@ -10,6 +10,7 @@ import caevo.SieveSentence;
 import caevo.TextEvent;
 import caevo.Timex;
 import caevo.tlink.EventTimeLink;
+import caevo.tlink.LinearScorer;
 import caevo.tlink.TLink;
 import caevo.tlink.TLinkClassifier;
 import caevo.tlink.TLinkDatum;
@@ -17,7 +18,8 @@ import caevo.tlink.TLinkFeaturizer;
 import caevo.util.Pair;
 import caevo.util.CaevoProperties;
 import caevo.util.TimebankUtil;
-import caevo.util.Util;
+import caevo.util.ModelRegistry;
+import caevo.util.WordNet;
 import edu.stanford.nlp.classify.Classifier;
 import edu.stanford.nlp.io.IOUtils;
 
@@ -26,8 +28,10 @@ import edu.stanford.nlp.io.IOUtils;
  *
  * @author chambers
  */
-public class MLEventDCT implements Sieve {
+public class MLEventDCT implements WordNetSieve, ModelSieve {
 	Classifier<String,String> eDCTClassifier = null; // event-DCT links.
+	LinearScorer eDCTScorer = null;
+	boolean loadAttempted = false; // readClassifiers() ran, whether or not it found the models
   Classifier<String,String> eDCTExistsClassifier = null; // binary, is there a link or not?
   TLinkFeaturizer featurizer;
   
@@ -64,15 +68,27 @@ public class MLEventDCT implements Sieve {
   		minProb = CaevoProperties.getDouble("MLEventDCT.minProb", 0.0);
   		minFeatOccurrence = CaevoProperties.getInt("MLEventDCT.minFeatCount", 2);
 		} catch( IOException ex ) { }
-		
-		readClassifiers();
 	}
 	
+	public void setWordNet(WordNet wordnet) {
+		featurizer.setWordNet(wordnet);
+	}
+
+	/**
+	 * Load the shared classifiers now, unless train() already made new ones. A failed load
+	 * is not retried for every document.
+	 */
+	public void loadModels() {
+		if( eDCTClassifier == null && !loadAttempted )
+			readClassifiers();
+	}
+
 	/**
 	 * The main function. All sieves must have this.
 	 */
 	public List<TLink> annotate(SieveDocument doc, List<TLink> currentTLinks) {
-		// Classifier loading must have failed in init()
+		loadModels();
+		// Classifier loading must have failed
 		if( eDCTClassifier == null )
 			return null;
 		
@@ -102,7 +118,7 @@ public class MLEventDCT implements Sieve {
     		if( sent.events() != null ) {
     			for( TextEvent event : sent.events() ) {
     				TLinkDatum datum = featurizer.createEventDocumentTimeDatum(doc, event, dct, null);
-    				Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(eDCTClassifier, datum.createRVFDatum());
+    				Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(eDCTClassifier, eDCTScorer, datum);
     				TLink link = new EventTimeLink(event.getEiid(), dct.getTid(), TLink.Type.valueOf(labelProb.first()));
     				link.setRelationConfidence(labelProb.second());
     				tlinks.add(link);
@@ -116,9 +132,11 @@ public class MLEventDCT implements Sieve {
   
     
   private void readClassifiers() {
+  	loadAttempted = true;
   	String path = "/models/tlinks/" + eDCTName;
   	System.out.println("Loading edct from " + path);
-  	eDCTClassifier = Util.readClassifierFromFile(this.getClass().getResource(path));
+  	eDCTClassifier = ModelRegistry.getClassifier(path);
+  	eDCTScorer = ModelRegistry.getScorer(path);
   }
   
   
@@ -137,7 +155,8 @@ public class MLEventDCT implements Sieve {
     	}
     }
     
-    eDCTClassifier = TLinkClassifier.train(data, minFeatOccurrence);    
+    eDCTClassifier = TLinkClassifier.train(data, minFeatOccurrence);
+    eDCTScorer = LinearScorer.compile(eDCTClassifier);    
     
     try {
     	IOUtils.writeObjectToFile(eDCTClassifier, eDCTName);
@@ -9,16 +9,17 @@ import caevo.SieveDocuments;
 import caevo.SieveSentence;
 import caevo.TextEvent;
 import caevo.tlink.EventEventLink;
+import caevo.tlink.LinearScorer;
 import caevo.tlink.TLink;
 import caevo.tlink.TLinkClassifier;
 import caevo.tlink.TLinkDatum;
 import caevo.tlink.TLinkFeaturizer;
 import caevo.util.Pair;
 import caevo.util.CaevoProperties;
-import caevo.util.Util;
+import caevo.util.ModelRegistry;
+import caevo.util.WordNet;
 import edu.stanford.nlp.classify.Classifier;
 import edu.stanford.nlp.io.IOUtils;
-import edu.stanford.nlp.ling.RVFDatum;
 
 /**
  * Machine learned event-event pairs inter-sentence (one sentence away).
@@ -28,8 +29,10 @@ import edu.stanford.nlp.ling.RVFDatum;
  *
  * @author chambers
  */
-public class MLEventEventDiffSent implements Sieve {
+public class MLEventEventDiffSent implements WordNetSieve, ModelSieve {
 	Classifier<String,String> eeDiffSentClassifier = null; // inter-sentence event-event links.
+	LinearScorer eeDiffSentScorer = null;
+	boolean loadAttempted = false; // readClassifiers() ran, whether or not it found the models
   Classifier<String,String> eeDiffSentExistsClassifier = null; // binary, is there a link or not?
   TLinkFeaturizer featurizer;
   
@@ -62,15 +65,27 @@ public class MLEventEventDiffSent implements Sieve {
 		try {
   		debug = CaevoProperties.getBoolean("MLEventEventDiffSent.debug",false);
 		} catch( IOException ex ) { }
-		
-		readClassifiers();
 	}
 	
+	public void setWordNet(WordNet wordnet) {
+		featurizer.setWordNet(wordnet);
+	}
+
+	/**
+	 * Load the shared classifiers now, unless train() already made new ones. A failed load
+	 * is not retried for every document.
+	 */
+	public void loadModels() {
+		if( eeDiffSentClassifier == null && !loadAttempted )
+			readClassifiers();
+	}
+
 	/**
 	 * The main function. All sieves must have this.
 	 */
 	public List<TLink> annotate(SieveDocument doc, List<TLink> currentTLinks) {
-		// Classifier loading must have failed in init()
+		loadModels();
+		// Classifier loading must have failed
 		if( eeDiffSentClassifier == null )
 			return null;
 		
@@ -114,8 +129,7 @@ public class MLEventEventDiffSent implements Sieve {
 
     // Get the best label and its probability.
     TLinkDatum datum = featurizer.createEventEventDatum(doc, event1, event2, null);
-    RVFDatum<String,String> rvf = datum.createRVFDatum();
-    Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(targetClassifier, rvf);
+    Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(targetClassifier, eeDiffSentScorer, datum);
     String label = labelProb.first();
 
     // Create the actual link with the classified label.
@@ -126,8 +140,10 @@ public class MLEventEventDiffSent implements Sieve {
   
   
   private void readClassifiers() {
+  	loadAttempted = true;
   	String path = "/models/tlinks/" + eeDiffSentName;
-  	eeDiffSentClassifier = Util.readClassifierFromFile(this.getClass().getResource(path));
+  	eeDiffSentClassifier = ModelRegistry.getClassifier(path);
+  	eeDiffSentScorer = ModelRegistry.getScorer(path);
   }
   
   
@@ -146,7 +162,8 @@ public class MLEventEventDiffSent implements Sieve {
     	}
     }
     
-    eeDiffSentClassifier = TLinkClassifier.train(data, featMinOccurrence);    
+    eeDiffSentClassifier = TLinkClassifier.train(data, featMinOccurrence);
+    eeDiffSentScorer = LinearScorer.compile(eeDiffSentClassifier);    
     
     try {
     	IOUtils.writeObjectToFile(eeDiffSentClassifier, eeDiffSentName);
@@ -12,6 +12,7 @@ import caevo.SieveDocuments;
 import caevo.SieveSentence;
 import caevo.TextEvent;
 import caevo.tlink.EventEventLink;
+import caevo.tlink.LinearScorer;
 import caevo.tlink.TLink;
 import caevo.tlink.TLinkClassifier;
 import caevo.tlink.TLinkDatum;
@@ -19,10 +20,9 @@ import caevo.tlink.TLinkFeaturizer;
 import caevo.util.Pair;
 import caevo.util.CaevoProperties;
 import caevo.util.TimebankUtil;
-import caevo.util.Util;
+import caevo.util.ModelRegistry;
 import edu.stanford.nlp.classify.Classifier;
 import edu.stanford.nlp.io.IOUtils;
-import edu.stanford.nlp.ling.RVFDatum;
 import edu.stanford.nlp.trees.Tree;
 
 /**
@@ -38,6 +38,7 @@ import edu.stanford.nlp.trees.Tree;
  */
 public class MLEventEventDominates extends MLEventEventSameSent {
   Classifier<String,String> eeSameSentDominatesClassifier = null;   // intra-sentence, event-event syntactically dominates
+  LinearScorer eeSameSentDominatesScorer = null;
   String modelName = "tlink.ee.dominates.classifier";
   
   int featMinOccurrence = 2;
@@ -65,15 +66,23 @@ public class MLEventEventDominates extends MLEventEventSameSent {
 		try {
   		debug = CaevoProperties.getBoolean("MLEventEventDominates.debug",false);
 		} catch( IOException ex ) { }
-		
-		readClassifiers();
+	}
+
+	/**
+	 * Load the shared classifiers now, unless train() already made new ones. A failed load
+	 * is not retried for every document.
+	 */
+	public void loadModels() {
+		if( eeSameSentDominatesClassifier == null && !loadAttempted )
+			readClassifiers();
 	}
 
 	/**
 	 * The main function. All sieves must have this.
 	 */
 	public List<TLink> annotate(SieveDocument doc, List<TLink> currentTLinks) {
-		// Classifier loading must have failed in init()
+		loadModels();
+		// Classifier loading must have failed
 		if( eeSameSentDominatesClassifier == null )
 			return null;
 		
@@ -136,8 +145,7 @@ public class MLEventEventDominates extends MLEventEventSameSent {
 
     // Get the best label and its probability.
     TLinkDatum datum = featurizer.createEventEventDatum(doc, event1, event2, null);
-    RVFDatum<String,String> rvf = datum.createRVFDatum();
-    Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(targetClassifier, rvf);
+    Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(targetClassifier, eeSameSentDominatesScorer, datum);
     String label = labelProb.first();
 
     // Create the actual link with the classified label.
@@ -152,8 +160,10 @@ public class MLEventEventDominates extends MLEventEventSameSent {
    * Load the previously trained classifiers from our model directory.
    */
   private void readClassifiers() {
+  	loadAttempted = true;
   	String path = modelDir + "/" + modelName;
-  	eeSameSentDominatesClassifier = Util.readClassifierFromFile(this.getClass().getResource(path));
+  	eeSameSentDominatesClassifier = ModelRegistry.getClassifier(path);
+  	eeSameSentDominatesScorer = ModelRegistry.getScorer(path);
   	if( eeSameSentDominatesClassifier == null )
   		System.out.println("ERROR: MLEventEventDominates could not read its classifier at: " + path);
   }
@@ -176,7 +186,8 @@ public class MLEventEventDominates extends MLEventEventSameSent {
     System.out.println("Final training data size: " + data.size());
 
     // Train the multi-class classifier.
-    eeSameSentDominatesClassifier = TLinkClassifier.train(data, featMinOccurrence);    
+    eeSameSentDominatesClassifier = TLinkClassifier.train(data, featMinOccurrence);
+    eeSameSentDominatesScorer = LinearScorer.compile(eeSameSentDominatesClassifier);    
     writeClassifier(eeSameSentDominatesClassifier, modelName);    
 	}
 
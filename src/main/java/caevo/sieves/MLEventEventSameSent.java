@@ -14,6 +14,7 @@ import caevo.SieveDocuments;
 import caevo.SieveSentence;
 import caevo.TextEvent;
 import caevo.tlink.EventEventLink;
+import caevo.tlink.LinearScorer;
 import caevo.tlink.TLink;
 import caevo.tlink.TLinkClassifier;
 import caevo.tlink.TLinkDatum;
@@ -21,10 +22,10 @@ import caevo.tlink.TLinkFeaturizer;
 import caevo.util.Pair;
 import caevo.util.CaevoProperties;
 import caevo.util.TimebankUtil;
-import caevo.util.Util;
+import caevo.util.ModelRegistry;
+import caevo.util.WordNet;
 import edu.stanford.nlp.classify.Classifier;
 import edu.stanford.nlp.io.IOUtils;
-import edu.stanford.nlp.ling.RVFDatum;
 import edu.stanford.nlp.stats.ClassicCounter;
 import edu.stanford.nlp.stats.Counter;
 import edu.stanford.nlp.trees.Tree;
@@ -40,9 +41,12 @@ import edu.stanford.nlp.trees.Tree;
  * 
  * @author chambers
  */
-public class MLEventEventSameSent implements Sieve {
+public class MLEventEventSameSent implements WordNetSieve, ModelSieve {
 	Classifier<String,String> eeSameSentClassifier = null; // intra-sentence event-event links.
 	Map<TLink.Type,Classifier<String,String>> binaryLabelClassifiers;
+	LinearScorer eeSameSentScorer = null;
+	boolean loadAttempted = false; // readClassifiers() ran, whether or not it found the models
+	Map<TLink.Type,LinearScorer> binaryLabelScorers;
 	
   Classifier<String,String> eeSameSentExistsClassifier = null; // binary, is there a link or not?
   TLinkFeaturizer featurizer;
@@ -55,6 +59,7 @@ public class MLEventEventSameSent implements Sieve {
   boolean eesplit = false;
   boolean debug = true;
   int featMinOccurrence = 2;
+  int trainThreads = 1; // classifiers to train at once (Main.trainThreads)
   
   double minProb = 0.0;
   
@@ -81,9 +86,8 @@ public class MLEventEventSameSent implements Sieve {
   		eesplit = CaevoProperties.getBoolean("MLEventEventSameSent.eesplit",false);
   		debug = CaevoProperties.getBoolean("MLEventEventSameSent.debug",false);
   		doBinaryLabel = CaevoProperties.getString("MLEventEventSameSent.binaryLabel",null);
+  		trainThreads = CaevoProperties.getInt("Main.trainThreads", trainThreads);
 		} catch( IOException ex ) { }
-		
-		readClassifiers();
 	}
 	
 	public void printLabelStats(List<TLink> links) {
@@ -94,11 +98,25 @@ public class MLEventEventSameSent implements Sieve {
 			System.out.println(label + "\t" + counts.getCount(label));
 	}
 	
+	public void setWordNet(WordNet wordnet) {
+		featurizer.setWordNet(wordnet);
+	}
+
+	/**
+	 * Load the shared classifiers now, unless train() already made new ones. A failed load
+	 * is not retried for every document.
+	 */
+	public void loadModels() {
+		if( eeSameSentClassifier == null && !loadAttempted )
+			readClassifiers();
+	}
+
 	/**
 	 * The main function. All sieves must have this.
 	 */
 	public List<TLink> annotate(SieveDocument doc, List<TLink> currentTLinks) {
-		// Classifier loading must have failed in init()
+		loadModels();
+		// Classifier loading must have failed
 		if( eeSameSentClassifier == null )
 			return null;
 		
@@ -155,11 +173,14 @@ public class MLEventEventSameSent implements Sieve {
   private EventEventLink createIntraSentenceEELink(SieveDocument doc, TextEvent event1, TextEvent event2) {
     // Normal, 1 classifier for all event-event links.
     Classifier<String,String> targetClassifier = eeSameSentClassifier;
+    LinearScorer targetScorer = eeSameSentScorer;
     List<Tree> trees = doc.getAllParseTrees();
 
     // We are doing a binary classification on one link type.
-    if( doBinaryLabel != null ) 
+    if( doBinaryLabel != null ) {
     	targetClassifier = binaryLabelClassifiers.get(TLink.Type.valueOf(doBinaryLabel));
+    	targetScorer = binaryLabelScorers.get(TLink.Type.valueOf(doBinaryLabel));
+    }
     
     // Use 2 classifiers for event-event links. One for syntactic dominance, the other for general.
     // This just sets 'targetClassifier' to null. Maintaining in case someone
@@ -173,8 +194,7 @@ public class MLEventEventSameSent implements Sieve {
 
     // Get the best label and its probability.
     TLinkDatum datum = featurizer.createEventEventDatum(doc, event1, event2, null);
-    RVFDatum<String,String> rvf = datum.createRVFDatum();
-    Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(targetClassifier, rvf);
+    Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(targetClassifier, targetScorer, datum);
     String label = labelProb.first();
 
     // Create the actual link with the classified label.
@@ -189,17 +209,22 @@ public class MLEventEventSameSent implements Sieve {
    * Load the previously trained classifiers from our model directory.
    */
   private void readClassifiers() {
+  	loadAttempted = true;
   	String path = modelDir + "/" + eeSameSentName;
-  	eeSameSentClassifier = Util.readClassifierFromFile(this.getClass().getResource(path));
+  	eeSameSentClassifier = ModelRegistry.getClassifier(path);
   	if( eeSameSentClassifier == null )
   		System.out.println("ERROR: MLEventEventSameSent could not read its classifier at: " + path);
+  	eeSameSentScorer = ModelRegistry.getScorer(path);
 
-  	// Read the binary classifiers, one for each label type.
+  	// Read the binary classifiers, one for each label type, if we classify one label.
   	binaryLabelClassifiers = new HashMap<TLink.Type,Classifier<String,String>>();
-  	for( TLink.Type label : labels ) {
-    	String mpath = "/models/tlinks/tlink.ee.samesent." + label.toString() + ".classifier";
-    	Classifier<String,String> classifier = Util.readClassifierFromFile(this.getClass().getResource(mpath));
-    	binaryLabelClassifiers.put(label, classifier);
+  	binaryLabelScorers = new HashMap<TLink.Type,LinearScorer>();
+  	if( doBinaryLabel != null ) {
+  		for( TLink.Type label : labels ) {
+  			String mpath = "/models/tlinks/tlink.ee.samesent." + label.toString() + ".classifier";
+  			binaryLabelClassifiers.put(label, ModelRegistry.getClassifier(mpath));
+  			binaryLabelScorers.put(label, ModelRegistry.getScorer(mpath));
+  		}
   	}
   }
   
@@ -232,15 +257,28 @@ public class MLEventEventSameSent implements Sieve {
 		List<TLinkDatum> data = featurizer.infoToTLinkFeatures(docs, null);
     System.out.println("Final training data size: " + data.size());
 
-    // Train the multi-class classifier.
-    eeSameSentClassifier = TLinkClassifier.train(data, featMinOccurrence);    
+    // The multi-class classifier, then binary classifiers for each label. They are
+    // independent, so they can train at the same time. Each binary dataset is a copy of the
+    // data, so it is only built when its classifier starts training.
+    final List<TLinkDatum> allData = data;
+    List<TLinkClassifier.DatasetBuilder> datasets = new ArrayList<TLinkClassifier.DatasetBuilder>();
+    datasets.add(new TLinkClassifier.DatasetBuilder() {
+    	public List<TLinkDatum> build() { return allData; }
+    });
+    for( final TLink.Type target : labels ) {
+    	datasets.add(new TLinkClassifier.DatasetBuilder() {
+    		public List<TLinkDatum> build() { return createBinaryData(target, allData); }
+    	});
+    }
+    List<Classifier<String,String>> classifiers = TLinkClassifier.train(datasets, featMinOccurrence, trainThreads);
+
+    eeSameSentClassifier = classifiers.get(0);
+    eeSameSentScorer = LinearScorer.compile(eeSameSentClassifier);
     writeClassifier(eeSameSentClassifier, eeSameSentName);    
 
-    // Train binary classifiers for each label.
-    for( TLink.Type target : labels ) {
-    	List<TLinkDatum> binarydata = createBinaryData(target, data);
-    	String modelName = "tlink.ee.samesent." + target.toString() + ".classifier";
-    	writeClassifier(TLinkClassifier.train(binarydata, featMinOccurrence), modelName);
+    for( int ii = 0; ii < labels.length; ii++ ) {
+    	String modelName = "tlink.ee.samesent." + labels[ii].toString() + ".classifier";
+    	writeClassifier(classifiers.get(ii+1), modelName);
     }
 	}
 
@@ -10,16 +10,17 @@ import caevo.SieveSentence;
 import caevo.TextEvent;
 import caevo.Timex;
 import caevo.tlink.EventTimeLink;
+import caevo.tlink.LinearScorer;
 import caevo.tlink.TLink;
 import caevo.tlink.TLinkClassifier;
 import caevo.tlink.TLinkDatum;
 import caevo.tlink.TLinkFeaturizer;
 import caevo.util.Pair;
 import caevo.util.CaevoProperties;
-import caevo.util.Util;
+import caevo.util.ModelRegistry;
+import caevo.util.WordNet;
 import edu.stanford.nlp.classify.Classifier;
 import edu.stanford.nlp.io.IOUtils;
-import edu.stanford.nlp.ling.RVFDatum;
 
 /**
  * Machine learned event-time pairs inter-sentence.
@@ -29,8 +30,10 @@ import edu.stanford.nlp.ling.RVFDatum;
  *
  * @author chambers
  */
-public class MLEventTimeDiffSent implements Sieve {
+public class MLEventTimeDiffSent implements WordNetSieve, ModelSieve {
 	Classifier<String,String> etDiffSentClassifier = null; // intra-sentence event-event links.
+	LinearScorer etDiffSentScorer = null;
+	boolean loadAttempted = false; // readClassifiers() ran, whether or not it found the models
   Classifier<String,String> etDiffSentExistsClassifier = null; // binary, is there a link or not?
   TLinkFeaturizer featurizer;
   
@@ -63,15 +66,27 @@ public class MLEventTimeDiffSent implements Sieve {
 		try {
   		debug = CaevoProperties.getBoolean("MLEventTimeDiffSent.debug",false);
 		} catch( IOException ex ) { }
-		
-		readClassifiers();
 	}
 	
+	public void setWordNet(WordNet wordnet) {
+		featurizer.setWordNet(wordnet);
+	}
+
+	/**
+	 * Load the shared classifiers now, unless train() already made new ones. A failed load
+	 * is not retried for every document.
+	 */
+	public void loadModels() {
+		if( etDiffSentClassifier == null && !loadAttempted )
+			readClassifiers();
+	}
+
 	/**
 	 * The main function. All sieves must have this.
 	 */
 	public List<TLink> annotate(SieveDocument doc, List<TLink> currentTLinks) {
-		// Classifier loading must have failed in init()
+		loadModels();
+		// Classifier loading must have failed
 		if( etDiffSentClassifier == null )
 			return null;
 		
@@ -100,8 +115,7 @@ public class MLEventTimeDiffSent implements Sieve {
     		for( TextEvent event : events ) {
     			for( Timex timex : timexesNext ) {
       			TLinkDatum datum = featurizer.createEventTimeDatum(doc, event, timex, null);
-      			RVFDatum<String,String> rvf = datum.createRVFDatum();
-      			Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(etDiffSentClassifier, rvf);
+      			Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(etDiffSentClassifier, etDiffSentScorer, datum);
       			TLink link = new EventTimeLink(event.getEiid(), timex.getTid(), TLink.Type.valueOf(labelProb.first()));
       			link.setRelationConfidence(labelProb.second());
       			tlinks.add(link);
@@ -112,8 +126,7 @@ public class MLEventTimeDiffSent implements Sieve {
     		for( Timex timex : timexes ) {
       		for( TextEvent event : eventsNext ) {
       			TLinkDatum datum = featurizer.createEventTimeDatum(doc, event, timex, null);
-      			RVFDatum<String,String> rvf = datum.createRVFDatum();
-      			Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(etDiffSentClassifier, rvf);
+      			Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(etDiffSentClassifier, etDiffSentScorer, datum);
       			TLink link = new EventTimeLink(event.getEiid(), timex.getTid(), TLink.Type.valueOf(labelProb.first()));
       			link.setRelationConfidence(labelProb.second());
       			tlinks.add(link);
@@ -127,9 +140,11 @@ public class MLEventTimeDiffSent implements Sieve {
   
     
   private void readClassifiers() {
+  	loadAttempted = true;
   	String path = "/models/tlinks/" + etDiffSentName;
   	System.out.println("Loading et diffsent from " + path);
-  	etDiffSentClassifier = Util.readClassifierFromFile(this.getClass().getResource(path));
+  	etDiffSentClassifier = ModelRegistry.getClassifier(path);
+  	etDiffSentScorer = ModelRegistry.getScorer(path);
   }
   
   
@@ -148,7 +163,8 @@ public class MLEventTimeDiffSent implements Sieve {
     	}
     }
     
-    etDiffSentClassifier = TLinkClassifier.train(data, featMinOccurrence);    
+    etDiffSentClassifier = TLinkClassifier.train(data, featMinOccurrence);
+    etDiffSentScorer = LinearScorer.compile(etDiffSentClassifier);    
     
     try {
     	IOUtils.writeObjectToFile(etDiffSentClassifier, etDiffSentName);
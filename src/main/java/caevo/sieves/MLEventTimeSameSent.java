@@ -10,16 +10,17 @@ import caevo.SieveSentence;
 import caevo.TextEvent;
 import caevo.Timex;
 import caevo.tlink.EventTimeLink;
+import caevo.tlink.LinearScorer;
 import caevo.tlink.TLink;
 import caevo.tlink.TLinkClassifier;
 import caevo.tlink.TLinkDatum;
 import caevo.tlink.TLinkFeaturizer;
 import caevo.util.Pair;
 import caevo.util.CaevoProperties;
-import caevo.util.Util;
+import caevo.util.ModelRegistry;
+import caevo.util.WordNet;
 import edu.stanford.nlp.classify.Classifier;
 import edu.stanford.nlp.io.IOUtils;
-import edu.stanford.nlp.ling.RVFDatum;
 
 /**
  * Machine learned event-time pairs intra-sentence.
@@ -32,8 +33,10 @@ import edu.stanford.nlp.ling.RVFDatum;
  * 
  * @author chambers
  */
-public class MLEventTimeSameSent implements Sieve {
+public class MLEventTimeSameSent implements WordNetSieve, ModelSieve {
 	Classifier<String,String> etSameSentClassifier = null; // intra-sentence event-event links.
+	LinearScorer etSameSentScorer = null;
+	boolean loadAttempted = false; // readClassifiers() ran, whether or not it found the models
   Classifier<String,String> etSameSentExistsClassifier = null; // binary, is there a link or not?
   TLinkFeaturizer featurizer;
   
@@ -65,15 +68,27 @@ public class MLEventTimeSameSent implements Sieve {
 		try {
   		debug = CaevoProperties.getBoolean("MLEventTimeSameSent.debug",false);
 		} catch( IOException ex ) { }
-		
-		readClassifiers();
 	}
 	
+	public void setWordNet(WordNet wordnet) {
+		featurizer.setWordNet(wordnet);
+	}
+
+	/**
+	 * Load the shared classifiers now, unless train() already made new ones. A failed load
+	 * is not retried for every document.
+	 */
+	public void loadModels() {
+		if( etSameSentClassifier == null && !loadAttempted )
+			readClassifiers();
+	}
+
 	/**
 	 * The main function. All sieves must have this.
 	 */
 	public List<TLink> annotate(SieveDocument doc, List<TLink> currentTLinks) {
-		// Classifier loading must have failed in init()
+		loadModels();
+		// Classifier loading must have failed
 		if( etSameSentClassifier == null )
 			return null;
 		
@@ -98,8 +113,7 @@ public class MLEventTimeSameSent implements Sieve {
       	for( Timex timex : timexes ) {
       		for( TextEvent event : events ) {
       			TLinkDatum datum = featurizer.createEventTimeDatum(doc, event, timex, null);
-      			RVFDatum<String,String> rvf = datum.createRVFDatum();
-      			Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(etSameSentClassifier, rvf);
+      			Pair<String,Double> labelProb = TLinkClassifier.getLabelProb(etSameSentClassifier, etSameSentScorer, datum);
       			TLink link = new EventTimeLink(event.getEiid(), timex.getTid(), TLink.Type.valueOf(labelProb.first()));
       			link.setRelationConfidence(labelProb.second());
       			tlinks.add(link);
@@ -113,9 +127,11 @@ public class MLEventTimeSameSent implements Sieve {
   
     
   private void readClassifiers() {
+  	loadAttempted = true;
   	String path = "/models/tlinks/" + etSameSentName;
   	System.out.println("Loading et samesent from " + path);
-  	etSameSentClassifier = Util.readClassifierFromFile(this.getClass().getResource(path));
+  	etSameSentClassifier = ModelRegistry.getClassifier(path);
+  	etSameSentScorer = ModelRegistry.getScorer(path);
   }
   
   
@@ -134,7 +150,8 @@ public class MLEventTimeSameSent implements Sieve {
     	}
     }
     
-    etSameSentClassifier = TLinkClassifier.train(data, featMinOccurrence);    
+    etSameSentClassifier = TLinkClassifier.train(data, featMinOccurrence);
+    etSameSentScorer = LinearScorer.compile(etSameSentClassifier);    
     
     try {
     	IOUtils.writeObjectToFile(etSameSentClassifier, etSameSentName);
@@ -16,7 +16,7 @@ import caevo.tlink.TLinkClassifier;
 import caevo.tlink.TLinkDatum;
 import caevo.util.Pair;
 import caevo.util.CaevoProperties;
-import caevo.util.Util;
+import caevo.util.ModelRegistry;
 import edu.stanford.nlp.classify.Classifier;
 import edu.stanford.nlp.io.IOUtils;
 import edu.stanford.nlp.ling.RVFDatum;
@@ -102,7 +102,7 @@ public class MLVagueSieve implements Sieve {
 			
 			File f = new File(this.modelSavePath);
 			if (f.exists())
-				this.model = Util.readClassifierFromFile(this.modelSavePath);
+				this.model = ModelRegistry.getFile(this.modelSavePath).getClassifier();
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -225,6 +225,7 @@ public class MLVagueSieve implements Sieve {
     
     try {
     	IOUtils.writeObjectToFile(this.model, this.modelSavePath);
+    	ModelRegistry.forgetFile(this.modelSavePath);
     } catch(Exception ex) {
     	System.out.println("ERROR: couldn't write classifiers to file in MLEventEventSameSent");
     	ex.printStackTrace();
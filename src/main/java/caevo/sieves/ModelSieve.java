@@ -0,0 +1,15 @@
+package caevo.sieves;
+
+/**
+ * A sieve with trained models. These sieves load their models on their first annotate(), so a
+ * long-running process calls loadModels() up front instead (see CaevoPipeline.warmUp()), and
+ * its first document doesn't pay for the loading.
+ */
+public interface ModelSieve extends Sieve {
+
+	/**
+	 * Load the models now, unless they are loaded or train() made new ones. A failed load is
+	 * not retried.
+	 */
+	public void loadModels();
+}
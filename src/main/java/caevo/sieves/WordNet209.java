@@ -6,7 +6,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import caevo.Main;
 import caevo.SieveDocument;
 import caevo.SieveDocuments;
 import caevo.TextEvent;
@@ -16,6 +15,7 @@ import caevo.tlink.TLink;
 import caevo.tlink.TimeTimeLink;
 import caevo.util.CaevoProperties;
 import caevo.util.TreeOperator;
+import caevo.util.WordNet;
 import net.didion.jwnl.data.POS;
 import edu.stanford.nlp.trees.LabeledScoredTreeFactory;
 import edu.stanford.nlp.trees.Tree;
@@ -75,7 +75,7 @@ import edu.stanford.nlp.trees.TreeFactory;
  * @author cassidy
  */
 
-public class WordNet209 implements Sieve {
+public class WordNet209 implements WordNetSieve {
 	public boolean debug = false;
 	private static TreeFactory tf = new LabeledScoredTreeFactory();
 	private int sentWindow = 1;
@@ -86,6 +86,7 @@ public class WordNet209 implements Sieve {
 	private boolean ignoreSameSentence = false;
 	private boolean eePairs = true;
 	private boolean ttPairs = true;
+	private WordNet wordnet;
 	
 	private static final Map<String, POS> postagSimpleToPOS;
   static
@@ -96,6 +97,11 @@ public class WordNet209 implements Sieve {
   	postagSimpleToPOS.put("JJ", POS.ADJECTIVE);
   	postagSimpleToPOS.put("RB", POS.ADVERB);
   }
+
+	public void setWordNet(WordNet wordnet) {
+		this.wordnet = wordnet;
+	}
+
 	/**
 	 * The main function. All sieves must have this.
 	 */
@@ -103,6 +109,9 @@ public class WordNet209 implements Sieve {
 	 * @see timesieve.sieves.Sieve#annotate(timesieve.InfoFile, java.lang.String, java.util.List)
 	 */
 	public List<TLink> annotate(SieveDocument doc, List<TLink> currentTLinks) {
+		// Outside a pipeline, use a WordNet of our own.
+		if( wordnet == null ) wordnet = new WordNet();
+
 				// Get property values from the config file
 				try {
 					sentWindow = CaevoProperties.getInt("Wordnet209.sentWindow", 1);
@@ -268,10 +277,10 @@ public class WordNet209 implements Sieve {
 			String postagSimple2 = postagStr2.substring(0,2);
 			POS pos1 = postagSimpleToPOS.get(postagSimple1);
 			POS pos2 = postagSimpleToPOS.get(postagSimple2);
-			String lemma1 = Main.wordnet.lemmatizeTaggedWord(e1.getString(), postagStr1);
-			String lemma2 = Main.wordnet.lemmatizeTaggedWord(e2.getString(), postagStr2);
-			//Synset[] syns1 = Main.wordnet.synsetsOf(e1.getString(), pos1);
-			//Synset[] syns2 = Main.wordnet.synsetsOf(e2.getString(), pos2);
+			String lemma1 = wordnet.lemmatizeTaggedWord(e1.getString(), postagStr1);
+			String lemma2 = wordnet.lemmatizeTaggedWord(e2.getString(), postagStr2);
+			//Synset[] syns1 = wordnet.synsetsOf(e1.getString(), pos1);
+			//Synset[] syns2 = wordnet.synsetsOf(e2.getString(), pos2);
 			// Only proceed if pos1 and pos2 are non-null and equal,
 			// and if so check if they are siblings.
 			// Note that areSiblings appears be resistant to the case when
@@ -281,7 +290,7 @@ public class WordNet209 implements Sieve {
 			// to check if the headWordLemma of the event is within the synset of the other;
 			// I don't think it is necessary to check that here.
 			if (checkSiblings && pos1 != null && pos2 != null && pos1 == pos2
-					&& Main.wordnet.areSiblings(e1.getString(), e2.getString(), pos1)) {
+					&& wordnet.areSiblings(e1.getString(), e2.getString(), pos1)) {
 				return new EventEventLink(e1.getEiid() , e2.getEiid(), TLink.Type.VAGUE);
 			}
 			if (checkLemmas && lemma1.equals(lemma2)) {
@@ -311,10 +320,10 @@ public class WordNet209 implements Sieve {
 			
 			POS pos1 = postagSimpleToPOS.get(postagSimple1);
 			POS pos2 = postagSimpleToPOS.get(postagSimple2);
-			String lemma1 = Main.wordnet.lemmatizeTaggedWord(e1.getText(), postagStr1);
-			String lemma2 = Main.wordnet.lemmatizeTaggedWord(e2.getText(), postagStr2);
-			//Synset[] syns1 = Main.wordnet.synsetsOf(e1.getString(), pos1);
-			//Synset[] syns2 = Main.wordnet.synsetsOf(e2.getString(), pos2);
+			String lemma1 = wordnet.lemmatizeTaggedWord(e1.getText(), postagStr1);
+			String lemma2 = wordnet.lemmatizeTaggedWord(e2.getText(), postagStr2);
+			//Synset[] syns1 = wordnet.synsetsOf(e1.getString(), pos1);
+			//Synset[] syns2 = wordnet.synsetsOf(e2.getString(), pos2);
 			// Only proceed if pos1 and pos2 are non-null and equal,
 			// and if so check if they are siblings.
 			// Note that areSiblings appears be resistant to the case when
@@ -324,7 +333,7 @@ public class WordNet209 implements Sieve {
 			// to check if the headWordLemma of the event is within the synset of the other;
 			// I don't think it is necessary to check that here.
 			//if (checkSiblings && pos1 != null && pos2 != null && pos1 == pos2
-				//	&& Main.wordnet.areSiblings(e1.getText(), e2.getText(), pos1)) {
+				//	&& wordnet.areSiblings(e1.getText(), e2.getText(), pos1)) {
 				//return new TimeTimeLink(e1.getTid() , e2.getTid(), TLink.Type.SIMULTANEOUS);
 			//}
 			if (checkLemmas && lemma1.equals(lemma2)) {
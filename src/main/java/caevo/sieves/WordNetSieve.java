@@ -0,0 +1,17 @@
+package caevo.sieves;
+
+import caevo.util.WordNet;
+
+/**
+ * A sieve that looks words up in WordNet. CaevoPipeline passes its own WordNet instance to each
+ * of these sieves right after creating it, so all sieves of a pipeline share that one instance
+ * instead of a global one. A sieve that is used without a pipeline creates its own WordNet on
+ * first use.
+ */
+public interface WordNetSieve extends Sieve {
+
+	/**
+	 * @param wordnet The WordNet to use for all lookups, shared with the rest of the pipeline.
+	 */
+	public void setWordNet(WordNet wordnet);
+}
@@ -0,0 +1,203 @@
+package caevo.tlink;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
+
+import caevo.SieveDocument;
+import edu.stanford.nlp.stats.Counter;
+
+/**
+ * On-disk cache of the training datums TLinkFeaturizer.infoToTLinkFeatures() and the
+ * TLinkClassifier.createDataset*Exists() methods create for one document, so retraining on the
+ * same data (e.g. to try another featMinOccurrence) skips featurizing the gold links again.
+ * Each entry is keyed by a SHA-1 of the kind of dataset, the featurizer's flags and the
+ * document's XML, so editing the document or changing which links are featurized is a
+ * different key.
+ *
+ * Entries are files under the cache directory, in subdirectories named by the first two hex
+ * digits of the key, written to a temporary file and renamed into place as in ParseCache. Bump
+ * VERSION when the features themselves change, so old entries are ignored.
+ */
+public class FeatureCache {
+  private static final int VERSION = 1;
+  private static final String SUFFIX = ".feats";
+
+  private final File dir;
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /**
+   * @param dirPath The cache directory. It is created if it doesn't exist.
+   */
+  public FeatureCache(String dirPath) {
+    this.dir = new File(dirPath);
+    if( !dir.exists() ) dir.mkdirs();
+  }
+
+  /**
+   * @param flags The featurizer settings that decide which links are featurized, and how.
+   * @return The cache key for this document: hex SHA-1 of the version, flags and document XML.
+   */
+  public String key(SieveDocument doc, String flags) {
+    try {
+      MessageDigest sha = MessageDigest.getInstance("SHA-1");
+      sha.update(Integer.toString(VERSION).getBytes("UTF-8"));
+      sha.update((byte)0);
+      sha.update(flags.getBytes("UTF-8"));
+      sha.update((byte)0);
+      sha.update(new XMLOutputter(Format.getCompactFormat()).outputString(doc.toXML()).getBytes("UTF-8"));
+      byte[] digest = sha.digest();
+      StringBuilder sb = new StringBuilder(digest.length * 2);
+      for( byte b : digest ) {
+        sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+        sb.append(Character.forDigit(b & 0xf, 16));
+      }
+      return sb.toString();
+    } catch( NoSuchAlgorithmException ex ) {
+      throw new RuntimeException(ex);
+    } catch( IOException ex ) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  /**
+   * @param doc The document the key was made from. Each datum's original TLink is restored
+   *            from its position in the document's tlinks.
+   * @return The cached datums, in the order they were created, or null if the key isn't cached.
+   */
+  public List<TLinkDatum> get(String key, SieveDocument doc) {
+    File file = fileFor(key);
+    if( !file.exists() ) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    List<TLink> tlinks = (doc.getTlinks() == null ? new ArrayList<TLink>() : new ArrayList<TLink>(doc.getTlinks()));
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if( in.readInt() != VERSION ) {
+        misses.incrementAndGet();
+        return null;
+      }
+      int numDatums = in.readInt();
+      List<TLinkDatum> data = new ArrayList<TLinkDatum>(numDatums);
+      for( int ii = 0; ii < numDatums; ii++ ) {
+        String label = readString(in);
+        TLinkDatum datum = new TLinkDatum(label == null ? null : TLink.Type.valueOf(label));
+        String type = readString(in);
+        if( type != null ) datum.setType(TLinkDatum.TYPE.valueOf(type));
+        datum.setDocSource(readString(in));
+        int linkIndex = in.readInt();
+        if( linkIndex >= 0 && linkIndex < tlinks.size() )
+          datum.setOriginalTLink(tlinks.get(linkIndex));
+        // Re-add the features in their original order, so the Counter iterates the same way.
+        int numFeats = in.readInt();
+        for( int ff = 0; ff < numFeats; ff++ ) {
+          String feat = readString(in);
+          datum.addFeature(feat, in.readDouble());
+        }
+        data.add(datum);
+      }
+      hits.incrementAndGet();
+      return data;
+    } catch( Exception ex ) {
+      // A partial or corrupt entry is just a miss; it is overwritten after featurizing.
+      System.out.println("WARNING: unreadable feature cache entry " + file);
+      misses.incrementAndGet();
+      return null;
+    } finally {
+      if( in != null ) try { in.close(); } catch( IOException ex ) { }
+    }
+  }
+
+  /**
+   * Store a document's datums. Failures are reported but not fatal, since the cache is only an
+   * optimization.
+   */
+  public void put(String key, SieveDocument doc, List<TLinkDatum> data) {
+    File file = fileFor(key);
+    File parent = file.getParentFile();
+    if( !parent.exists() ) parent.mkdirs();
+
+    Map<TLink,Integer> linkIndex = new IdentityHashMap<TLink,Integer>();
+    if( doc.getTlinks() != null )
+      for( TLink link : doc.getTlinks() )
+        linkIndex.put(link, linkIndex.size());
+    File temp = null;
+    DataOutputStream out = null;
+    try {
+      temp = File.createTempFile(key, ".tmp", parent);
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      out.writeInt(VERSION);
+      out.writeInt(data.size());
+      for( TLinkDatum datum : data ) {
+        writeString(out, datum.getLabel() == null ? null : datum.getLabel().toString());
+        writeString(out, datum.getType() == null ? null : datum.getType().toString());
+        writeString(out, datum.getSourceDoc());
+        Integer index = (datum._originalTLink == null ? null : linkIndex.get(datum._originalTLink));
+        out.writeInt(index == null ? -1 : index);
+        Counter<String> feats = datum.getFeatures();
+        out.writeInt(feats == null ? 0 : feats.size());
+        if( feats != null ) {
+          for( Map.Entry<String,Double> entry : feats.entrySet() ) {
+            writeString(out, entry.getKey());
+            out.writeDouble(entry.getValue());
+          }
+        }
+      }
+      out.close();
+      out = null;
+      if( !temp.renameTo(file) ) {
+        // Another thread stored the same document first.
+        temp.delete();
+      }
+    } catch( IOException ex ) {
+      System.out.println("WARNING: couldn't write feature cache entry " + file + ": " + ex.getMessage());
+      if( temp != null ) temp.delete();
+    } finally {
+      if( out != null ) try { out.close(); } catch( IOException ex ) { }
+    }
+  }
+
+  public int getHits() { return hits.get(); }
+  public int getMisses() { return misses.get(); }
+  public File getDirectory() { return dir; }
+
+  private File fileFor(String key) {
+    return new File(new File(dir, key.substring(0, 2)), key + SUFFIX);
+  }
+
+  private static void writeString(DataOutputStream out, String str) throws IOException {
+    if( str == null ) out.writeInt(-1);
+    else {
+      byte[] bytes = str.getBytes("UTF-8");
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if( length < 0 ) return null;
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+}
@@ -0,0 +1,187 @@
+package caevo.tlink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import caevo.util.Pair;
+import edu.stanford.nlp.classify.Classifier;
+import edu.stanford.nlp.classify.LinearClassifier;
+import edu.stanford.nlp.ling.RVFDatum;
+import edu.stanford.nlp.math.ArrayMath;
+import edu.stanford.nlp.stats.ClassicCounter;
+import edu.stanford.nlp.stats.Counter;
+
+/**
+ * A Stanford LinearClassifier compiled into one flat weight array and a feature-to-id map,
+ * so scoring a datum is one map lookup and a few array reads per feature instead of hash
+ * lookups of every feature and label. Build one with compile() after loading a classifier.
+ *
+ * The weights are feature-major (weights[feature * numLabels + label]), so each feature's
+ * weights for all labels are next to each other. Scores are summed in the same order as
+ * LinearClassifier sums them (the datum's feature order, then the label's threshold). The
+ * labels are kept in the order LinearClassifier's score Counter iterates them, and normalized
+ * with the same ArrayMath.logSum() that Counters.logNormalizeInPlace() calls, so labels, ties
+ * and probabilities are exactly the ones TLinkClassifier.getLabelProb() gives.
+ *
+ * Safe for concurrent use: the model is read-only and each thread scores into its own buffers.
+ */
+public class LinearScorer {
+  private final Map<String,Integer> features;
+  private final String[] labels;
+  private final double[] weights;
+  private final double[] thresholds;
+
+  private final ThreadLocal<SparseVector> vectors = new ThreadLocal<SparseVector>() {
+    protected SparseVector initialValue() { return new SparseVector(); }
+  };
+  private final ThreadLocal<double[]> scoreBuffers = new ThreadLocal<double[]>() {
+    protected double[] initialValue() { return new double[labels.length]; }
+  };
+
+  private LinearScorer(Map<String,Integer> features, String[] labels, double[] weights, double[] thresholds) {
+    this.features = features;
+    this.labels = labels;
+    this.weights = weights;
+    this.thresholds = thresholds;
+  }
+
+  /**
+   * @return The compiled classifier, or null if it isn't a LinearClassifier (keep using it as is).
+   */
+  public static LinearScorer compile(Classifier<String,String> classifier) {
+    if( !(classifier instanceof LinearClassifier) )
+      return null;
+    LinearClassifier<String,String> linear = (LinearClassifier<String,String>)classifier;
+
+    // With no features, each label's score is just its threshold. The labels are taken in
+    // this Counter's iteration order, which is the order Counters.argmax() breaks ties in and
+    // Counters.logNormalizeInPlace() sums in.
+    Counter<String> empty = linear.scoresOf(new RVFDatum<String,String>(new ClassicCounter<String>(), null));
+    List<String> labelList = new ArrayList<String>(empty.keySet());
+    String[] labels = labelList.toArray(new String[labelList.size()]);
+    Map<String,Integer> features = new HashMap<String,Integer>();
+    for( String feature : linear.features() )
+      if( !features.containsKey(feature) )
+        features.put(feature, features.size());
+    int numLabels = labels.length;
+
+    double[] weights = new double[features.size() * numLabels];
+    Map<String,Counter<String>> labelWeights = linear.weightsAsMapOfCounters();
+    for( int ll = 0; ll < numLabels; ll++ ) {
+      Counter<String> featureWeights = labelWeights.get(labels[ll]);
+      if( featureWeights == null ) continue;
+      for( Map.Entry<String,Double> entry : featureWeights.entrySet() ) {
+        Integer id = features.get(entry.getKey());
+        if( id != null )
+          weights[id * numLabels + ll] = entry.getValue();
+      }
+    }
+
+    double[] thresholds = new double[numLabels];
+    for( int ll = 0; ll < numLabels; ll++ )
+      thresholds[ll] = empty.getCount(labels[ll]);
+
+    return new LinearScorer(features, labels, weights, thresholds);
+  }
+
+  public int numLabels() { return labels.length; }
+
+  /**
+   * Fill the vector with the counter's features, in the counter's own order. Features the
+   * classifier never saw are left out, since their weights are zero.
+   */
+  private SparseVector vectorize(Counter<String> featureCounts, SparseVector vector) {
+    vector.clear();
+    if( featureCounts != null ) {
+      for( Map.Entry<String,Double> entry : featureCounts.entrySet() ) {
+        Integer id = features.get(entry.getKey());
+        if( id != null )
+          vector.add(id, entry.getValue());
+      }
+    }
+    return vector;
+  }
+
+  /**
+   * Score every label without allocating.
+   * @param scores Filled with one unnormalized score per label, in labels order.
+   */
+  private void scores(SparseVector vector, double[] scores) {
+    int numLabels = labels.length;
+    for( int ll = 0; ll < numLabels; ll++ )
+      scores[ll] = 0.0;
+    for( int ii = 0; ii < vector.size(); ii++ ) {
+      int base = vector.id(ii) * numLabels;
+      double value = vector.value(ii);
+      for( int ll = 0; ll < numLabels; ll++ )
+        scores[ll] += weights[base + ll] * value;
+    }
+    for( int ll = 0; ll < numLabels; ll++ )
+      scores[ll] += thresholds[ll];
+  }
+
+  /**
+   * @return The best label, as LinearClassifier.classOf() chooses it (the first highest score
+   *         in the Counter's order).
+   */
+  public String classOf(Counter<String> featureCounts) {
+    double[] scores = scoreBuffers.get();
+    scores(vectorize(featureCounts, vectors.get()), scores);
+    int best = 0;
+    for( int ll = 1; ll < labels.length; ll++ )
+      if( scores[ll] > scores[best] ) best = ll;
+    return labels[best];
+  }
+
+  /**
+   * The same as TLinkClassifier.getLabelProb(classifier, new RVFDatum(features)), bit for bit:
+   * the scores are normalized by ArrayMath.logSum() in the Counter's order, and the best
+   * probability is the first highest in that order, as Counters.argmax() chooses it.
+   * @return The best label and its probability.
+   */
+  public Pair<String,Double> getLabelProb(Counter<String> featureCounts) {
+    SparseVector vector = vectorize(featureCounts, vectors.get());
+    double[] scores = scoreBuffers.get();
+    scores(vector, scores);
+
+    double logTotal = ArrayMath.logSum(scores);
+    int best = -1;
+    double bestProb = Double.NEGATIVE_INFINITY;
+    for( int ll = 0; ll < labels.length; ll++ ) {
+      double prob = Math.exp(scores[ll] - logTotal);
+      if( best < 0 || prob > bestProb ) {
+        best = ll;
+        bestProb = prob;
+      }
+    }
+    return new Pair<String,Double>(labels[best], bestProb);
+  }
+
+  /**
+   * A datum's known features as parallel arrays of ids and values, in the order they were
+   * added. Each thread clears and refills its own, so scoring doesn't allocate.
+   */
+  private static class SparseVector {
+    private int[] ids = new int[32];
+    private double[] values = new double[32];
+    private int size = 0;
+
+    void add(int id, double value) {
+      if( size == ids.length ) {
+        ids = Arrays.copyOf(ids, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      ids[size] = id;
+      values[size] = value;
+      size++;
+    }
+
+    void clear() { size = 0; }
+    int size() { return size; }
+    int id(int i) { return ids[i]; }
+    double value(int i) { return values[i]; }
+  }
+}
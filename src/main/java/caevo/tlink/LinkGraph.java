@@ -0,0 +1,195 @@
+package caevo.tlink;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import caevo.util.IdIndex;
+
+/**
+ * The set of TLinks in one document, with at most one link per event/time pair.
+ * Links are kept in the order they were added, and can be looked up by pair (in either
+ * order) or by the event/time they touch, without scanning the whole list.
+ *
+ * A new link over a pair that already has a link is only accepted if the existing
+ * link is weak (VAGUE, NONE or UNKNOWN), in which case the new link replaces it: the old
+ * link is dropped and the new one goes to the end of the order.
+ *
+ * The links are kept in a linked map by pair, so replacing a link doesn't scan the others.
+ * getLinks() returns a snapshot of that order, rebuilt only after the graph changes.
+ */
+public class LinkGraph {
+  private IdIndex ids;
+  private LinkedHashMap<Long,TLink> links = new LinkedHashMap<Long,TLink>(); // smaller id index first
+  private Map<Long,TLink> pairToLink = new HashMap<Long,TLink>(); // both id orders
+  private List<List<TLink>> adjacency = new ArrayList<List<TLink>>(); // indexed by IdIndex int
+  private List<TLink> linkList = null; // getLinks() snapshot, null after a change
+
+  public LinkGraph() {
+    this(new IdIndex());
+  }
+
+  /**
+   * @param ids The document's id index, shared so that pair keys match the document's.
+   */
+  public LinkGraph(IdIndex ids) {
+    this.ids = ids;
+  }
+
+  /**
+   * @return All links in the order they were added. The list doesn't change when the graph
+   *         does; call this again after adding links.
+   */
+  public List<TLink> getLinks() {
+    if( linkList == null )
+      linkList = Collections.unmodifiableList(new ArrayList<TLink>(links.values()));
+    return linkList;
+  }
+
+  /**
+   * @return All links that have the given event/time as one of their two arguments.
+   */
+  public List<TLink> getLinks(String id) {
+    int index = ids.indexOf(id);
+    if( index < 0 || index >= adjacency.size() )
+      return Collections.emptyList();
+    return Collections.unmodifiableList(adjacency.get(index));
+  }
+
+  /**
+   * @return All links that were added by the given origin (e.g., a sieve name).
+   */
+  public List<TLink> getLinksFromOrigin(String origin) {
+    List<TLink> fromOrigin = new ArrayList<TLink>();
+    for( TLink link : links.values() )
+      if( origin == null ? link.getOrigin() == null : origin.equals(link.getOrigin()) )
+        fromOrigin.add(link);
+    return fromOrigin;
+  }
+
+  /**
+   * @return The link between the two ids, in either order, or null if there is none.
+   */
+  public TLink getLink(String id1, String id2) {
+    int index1 = ids.indexOf(id1);
+    int index2 = ids.indexOf(id2);
+    if( index1 < 0 || index2 < 0 ) return null;
+    return pairToLink.get(IdIndex.pairKey(index1, index2));
+  }
+
+  public boolean containsPair(String id1, String id2) {
+    return getLink(id1, id2) != null;
+  }
+
+  public int size() { return links.size(); }
+
+  public IdIndex getIdIndex() { return ids; }
+
+  /**
+   * @return True if the link carries no real ordering, so a later link may overwrite it.
+   */
+  public static boolean isWeak(TLink link) {
+    switch( link.getRelation() ) {
+      case UNKNOWN:
+      case VAGUE:
+      case NONE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @return True if the link's pair has no link yet, or only a weak one.
+   */
+  public boolean canAdd(TLink link) {
+    TLink current = getLink(link.getId1(), link.getId2());
+    return current == null || isWeak(current);
+  }
+
+  /**
+   * Adds the link to the end of the graph and records its origin. If the pair already
+   * had a link, that link is removed and replaced by this one.
+   * @param link The new link.
+   * @param origin Where the link came from (e.g., the sieve name). Not set if null.
+   * @return The link that was replaced, or null if the pair was new.
+   */
+  public TLink add(TLink link, String origin) {
+    int index1 = ids.intern(link.getId1());
+    int index2 = ids.intern(link.getId2());
+
+    TLink replaced = pairToLink.get(IdIndex.pairKey(index1, index2));
+    if( replaced != null )
+      remove(replaced);
+
+    links.put(orderedKey(index1, index2), link);
+    linkList = null;
+    pairToLink.put(IdIndex.pairKey(index1, index2), link);
+    pairToLink.put(IdIndex.pairKey(index2, index1), link);
+    adjacent(index1).add(link);
+    if( index1 != index2 ) adjacent(index2).add(link);
+    if( origin != null ) link.setOrigin(origin);
+    return replaced;
+  }
+
+  public void addAll(List<TLink> newlinks, String origin) {
+    for( TLink link : newlinks )
+      add(link, origin);
+  }
+
+  /**
+   * Removes this exact link object from the graph.
+   * @return True if the link was in the graph.
+   */
+  public boolean remove(TLink link) {
+    int index1 = ids.indexOf(link.getId1());
+    int index2 = ids.indexOf(link.getId2());
+    if( index1 < 0 || index2 < 0 || pairToLink.get(IdIndex.pairKey(index1, index2)) != link )
+      return false;
+
+    links.remove(orderedKey(index1, index2));
+    linkList = null;
+    pairToLink.remove(IdIndex.pairKey(index1, index2));
+    pairToLink.remove(IdIndex.pairKey(index2, index1));
+    removeIdentical(adjacency.get(index1), link);
+    if( index1 != index2 ) removeIdentical(adjacency.get(index2), link);
+    return true;
+  }
+
+  public void clear() {
+    links.clear();
+    linkList = null;
+    pairToLink.clear();
+    adjacency.clear();
+  }
+
+  private static long orderedKey(int index1, int index2) {
+    return index1 <= index2 ? IdIndex.pairKey(index1, index2) : IdIndex.pairKey(index2, index1);
+  }
+
+  private List<TLink> adjacent(int index) {
+    while( adjacency.size() <= index )
+      adjacency.add(new ArrayList<TLink>());
+    return adjacency.get(index);
+  }
+
+  /**
+   * List.remove(Object) uses TLink.equals(), which can match a different link object.
+   * Only used on adjacency lists, so the scan is bounded by the node's degree.
+   */
+  private static void removeIdentical(List<TLink> list, TLink link) {
+    for( int ii = list.size()-1; ii >= 0; ii-- ) {
+      if( list.get(ii) == link ) {
+        list.remove(ii);
+        return;
+      }
+    }
+  }
+
+  public String toString() {
+    return getLinks().toString();
+  }
+}
@@ -12,6 +12,11 @@ import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import caevo.SieveDocument;
 import caevo.SieveDocuments;
@@ -24,6 +29,7 @@ import caevo.util.HandleParameters;
 import caevo.util.Pair;
 import caevo.util.TimebankUtil;
 import caevo.util.TreeOperator;
+import caevo.util.WorkerThreads;
 import edu.stanford.nlp.classify.Classifier;
 import edu.stanford.nlp.classify.Dataset;
 import edu.stanford.nlp.classify.GeneralDataset;
@@ -280,6 +286,59 @@ public class TLinkClassifier {
     return classifier;
   }
 
+  /**
+   * Builds one training set right before its classifier trains, so only the sets being trained
+   * at the moment are in memory.
+   */
+  public interface DatasetBuilder {
+    List<TLinkDatum> build();
+  }
+
+  /**
+   * Train one classifier per dataset, up to the given number at a time. Each classifier
+   * is trained exactly as train(data, minFeatCutoff) would, so the results don't depend on the
+   * number of threads.
+   * @param datasets Independent training sets, e.g. one per label for one-vs-rest classifiers.
+   * @param threads The most classifiers to train at once. 1 trains them in order on this thread.
+   *                Inside an outer pool's worker (see WorkerThreads) they always train in order.
+   * @return The classifiers, in the same order as the datasets.
+   */
+  public static List<Classifier<String,String>> train(List<DatasetBuilder> datasets, final int minFeatCutoff, int threads) {
+    List<Classifier<String,String>> classifiers = new ArrayList<Classifier<String,String>>();
+    int numWorkers = Math.min(WorkerThreads.threads(threads), Math.max(1, datasets.size()));
+    if( numWorkers == 1 ) {
+      for( DatasetBuilder dataset : datasets )
+        classifiers.add(train(dataset.build(), minFeatCutoff));
+      return classifiers;
+    }
+
+    System.out.println("Training " + datasets.size() + " classifiers with " + numWorkers + " threads.");
+    ExecutorService pool = Executors.newFixedThreadPool(numWorkers);
+    List<Future<Classifier<String,String>>> futures = new ArrayList<Future<Classifier<String,String>>>();
+    for( final DatasetBuilder dataset : datasets ) {
+      futures.add(pool.submit(new Callable<Classifier<String,String>>() {
+        public Classifier<String,String> call() {
+          return train(dataset.build(), minFeatCutoff);
+        }
+      }));
+    }
+    pool.shutdown();
+
+    try {
+      for( Future<Classifier<String,String>> future : futures )
+        classifiers.add(future.get());
+    } catch( InterruptedException ex ) {
+      System.out.println("ERROR: interrupted while training classifiers in parallel.");
+      ex.printStackTrace();
+      System.exit(1);
+    } catch( ExecutionException ex ) {
+      System.out.println("ERROR: training a classifier failed.");
+      ex.getCause().printStackTrace();
+      System.exit(1);
+    }
+    return classifiers;
+  }
+
   
   /**
    * Test the given classifier on the given list of TLink data.
@@ -363,12 +422,8 @@ public class TLinkClassifier {
    */
   public List<TLinkDatum> createDatasetEventDCTExists(SieveDocuments docs, Set<String> docnames) {
     System.out.println("createDataset Event DCT Exists");
-    List<TLinkDatum> alldata = new ArrayList<TLinkDatum>();
-
-    for( SieveDocument doc : docs.getDocuments() ) {
-      if( docnames == null || docnames.contains(doc.getDocname()) ) {
-        System.out.println("\n--------------------------------------------------");
-        System.out.println("File " + doc.getDocname());
+    return featurizer.featurizeDocuments(docs, docnames, featurizer._threads, featurizer.cached("createDatasetEventDCTExists", new TLinkFeaturizer.DocumentFeaturizer() {
+      public List<TLinkDatum> featurize(SieveDocument doc) {
         List<TLinkDatum> datums = new ArrayList<TLinkDatum>();
         List<Timex> dcts = doc.getDocstamp();
         String dctid = dcts.get(0).getTid(); // assume only the first DCT timex
@@ -402,11 +457,9 @@ public class TLinkClassifier {
 
 //        System.out.println("DATUMS");
 //        for( TLinkDatum datum : datums ) System.out.println(datum);
-        alldata.addAll(datums);
+        return datums;
       }
-    }
-
-    return alldata;
+    }));
   }
   
   /**
@@ -415,12 +468,8 @@ public class TLinkClassifier {
    */
   public List<TLinkDatum> createDatasetEventEventSameSentExists(SieveDocuments docs, Set<String> docnames) {
     System.out.println("createDataset Event Event Same Sent Exists");
-    List<TLinkDatum> alldata = new ArrayList<TLinkDatum>();
-
-    for( SieveDocument doc : docs.getDocuments() ) {
-      if( docnames == null || docnames.contains(doc.getDocname()) ) {
-        System.out.println("\n--------------------------------------------------");
-        System.out.println("File " + doc.getDocname());
+    return featurizer.featurizeDocuments(docs, docnames, featurizer._threads, featurizer.cached("createDatasetEventEventSameSentExists", new TLinkFeaturizer.DocumentFeaturizer() {
+      public List<TLinkDatum> featurize(SieveDocument doc) {
         List<TLinkDatum> datums = new ArrayList<TLinkDatum>();
 
         // Hash the known tlinks.
@@ -456,11 +505,9 @@ public class TLinkClassifier {
         }
 //        System.out.println("DATUMS");
 //        for( TLinkDatum datum : datums ) System.out.println(datum);
-        alldata.addAll(datums);
+        return datums;
       }
-    }
-
-    return alldata;
+    }));
   }
 
   /**
@@ -469,12 +516,8 @@ public class TLinkClassifier {
    */
   public List<TLinkDatum> createDatasetEventTimeSameSentExists(SieveDocuments docs, Set<String> docnames) {
     System.out.println("createDataset Event Time Same Sent Exists");
-    List<TLinkDatum> alldata = new ArrayList<TLinkDatum>();
-
-    for( SieveDocument doc : docs.getDocuments() ) {
-      if( docnames == null || docnames.contains(doc.getDocname()) ) {
-        System.out.println("\n--------------------------------------------------");
-        System.out.println("File " + doc.getDocname());
+    return featurizer.featurizeDocuments(docs, docnames, featurizer._threads, featurizer.cached("createDatasetEventTimeSameSentExists", new TLinkFeaturizer.DocumentFeaturizer() {
+      public List<TLinkDatum> featurize(SieveDocument doc) {
         List<TLinkDatum> datums = new ArrayList<TLinkDatum>();
 
         // Hash the known tlinks.
@@ -509,11 +552,9 @@ public class TLinkClassifier {
         }
 //        System.out.println("E-T EXISTS DATUMS");
 //        for( TLinkDatum datum : datums ) System.out.println(datum);
-        alldata.addAll(datums);
+        return datums;
       }
-    }
-
-    return alldata;
+    }));
   }
   
   /**
@@ -1094,6 +1135,17 @@ public class TLinkClassifier {
 //    System.out.println("Returning: " + new Pair<String,Double>(label, scores.getCount(label)));
     return new Pair<String,Double>(label, scores.getCount(label));
   }
+
+  /**
+   * Classify a datum with the compiled scorer if there is one, otherwise with the classifier.
+   * Both give the same label and probability.
+   * @param scorer The classifier compiled by LinearScorer.compile(), or null.
+   */
+  public static Pair<String,Double> getLabelProb(Classifier<String,String> classifier, LinearScorer scorer, TLinkDatum datum) {
+    if( scorer != null )
+      return scorer.getLabelProb(datum.getFeatures());
+    return getLabelProb(classifier, datum.createRVFDatum());
+  }
   
   /**
    * Get all of the class labels used in the dataset, return them as a set.
@@ -1,10 +1,12 @@
 package caevo.tlink;
 
 import caevo.*;
+import caevo.util.CaevoProperties;
 import caevo.util.HandleParameters;
 import caevo.util.TimebankUtil;
 import caevo.util.TreeOperator;
 import caevo.util.WordNet;
+import caevo.util.WorkerThreads;
 import edu.stanford.nlp.stats.ClassicCounter;
 import edu.stanford.nlp.stats.Counter;
 import edu.stanford.nlp.trees.LabeledScoredTreeFactory;
@@ -19,6 +21,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This is the NEWEST (2012) best code to learn from TimeBank annotations.
@@ -39,10 +46,12 @@ import java.util.Set;
 public class TLinkFeaturizer {
   SieveDocuments _infoDocs;
   String _infoPath;
-  WordNet _wordnet;
+  volatile WordNet _wordnet; // set by setWordNet() or -wordnet, else created on first use
   String _wordnetPath = "/home/nchamber/code/lib/jwnl_file_properties.xml";
   TreeFactory _tf;
   public String _outpath = null;
+  public FeatureCache _featureCache = null; // training datums from earlier runs (TLinkFeaturizer.featureCache)
+  public int _threads = 1; // documents to featurize at once (TLinkFeaturizer.threads)
 
   public boolean debug = false;
   
@@ -88,10 +97,34 @@ public class TLinkFeaturizer {
   }
 
   private void init() {
-  	// Use the Main function's WordNet so we don't keep loading multiple copies of it.
-    if( _wordnet == null ) _wordnet = Main.wordnet;
+    try {
+      String cacheDir = CaevoProperties.getString("TLinkFeaturizer.featureCache", null);
+      if( cacheDir != null && cacheDir.length() > 0 ) _featureCache = new FeatureCache(cacheDir);
+      _threads = CaevoProperties.getInt("TLinkFeaturizer.threads", _threads);
+    } catch( IOException ex ) { }
   }
   
+  /**
+   * @param wordnet The WordNet to look tokens up in, shared with the pipeline that owns this featurizer.
+   */
+  public void setWordNet(WordNet wordnet) {
+    _wordnet = wordnet;
+  }
+
+  /**
+   * @return The WordNet given to this featurizer, or a new one if it wasn't given one.
+   */
+  private WordNet wordnet() {
+    WordNet wordnet = _wordnet;
+    if( wordnet == null ) {
+      synchronized( this ) {
+        if( _wordnet == null ) _wordnet = new WordNet();
+        wordnet = _wordnet;
+      }
+    }
+    return wordnet;
+  }
+
   private void handleParams(String[] args) {
     HandleParameters params = new HandleParameters(args);
     
@@ -150,140 +183,249 @@ public class TLinkFeaturizer {
    * @param docnames List of documents you want to featurize, or null if you want ALL featurized.
    */
   public List<TLinkDatum> infoToTLinkFeatures(SieveDocuments infoDocs, Set<String> docnames) {
-    int ii = 0;
-    List<TLinkDatum> data = new ArrayList<TLinkDatum>();
+    // tempeval2 mode changes the TLink labels of the documents and the global TLink mode as it goes.
+    int threads = (_tempeval2Mode ? 1 : _threads);
     
-    for( SieveDocument doc : infoDocs.getDocuments() ) {
-      if( docnames == null || docnames.contains(doc.getDocname()) ) {
-        System.out.println("\n--------------------------------------------------");
-        System.out.println("File " + doc.getDocname() + " (" + ++ii + " of " + infoDocs.getDocuments().size() + ")");
-
-        List<SieveSentence> sentences = doc.getSentences();
-        Collection<TLink> tlinks = doc.getTlinks();
-        List<Timex> dcts = doc.getDocstamp();
-        List<List<TypedDependency>> alldeps = doc.getAllDependencies();
-        List<Tree> trees = doc.getAllParseTrees();
-        List<TextEvent> events = doc.getEvents();
-        List<Timex> timexes = doc.getTimexes();
-        int sid = 0;
-        int numBethard = 0;
-        int numTurk = 0;
-        int numTimebank = 0;
-
-        // --- Create the TLink features ---
-
-        for( TLink link : tlinks ) {
+    DocumentFeaturizer featurizer = new DocumentFeaturizer() {
+      public List<TLinkDatum> featurize(SieveDocument doc) {
+        return featurizeDocument(doc);
+      }
+    };
+    if( !_tempeval2Mode )
+      featurizer = cached("infoToTLinkFeatures", featurizer);
+    return featurizeDocuments(infoDocs, docnames, threads, featurizer);
+  }
+
+  /**
+   * Wrap a DocumentFeaturizer so it reuses the datums in the feature cache and stores the ones
+   * it creates. Without a feature cache this returns the featurizer unchanged.
+   * @param kind Names the dataset the featurizer builds. It is part of the cache key with
+   *             flagsKey(), so different datasets from the same document don't collide.
+   */
+  public DocumentFeaturizer cached(final String kind, final DocumentFeaturizer featurizer) {
+    if( _featureCache == null )
+      return featurizer;
+    return new DocumentFeaturizer() {
+      public List<TLinkDatum> featurize(SieveDocument doc) {
+        String key = _featureCache.key(doc, kind + "|" + flagsKey());
+        List<TLinkDatum> docData = _featureCache.get(key, doc);
+        if( docData != null )
+          System.out.println("Doc " + doc.getDocname() + "\t" + docData.size() + " datums from the feature cache");
+        else {
+          docData = featurizer.featurize(doc);
+          _featureCache.put(key, doc, docData);
+        }
+        return docData;
+      }
+    };
+  }
+
+  /**
+   * Creates the datums of one document. featurizeDocuments() may call it on several threads
+   * at once, but never on the same document.
+   */
+  public interface DocumentFeaturizer {
+    List<TLinkDatum> featurize(SieveDocument doc);
+  }
+
+  /**
+   * Featurize each selected document, up to the given number of documents at a time. The
+   * documents are independent, so this only needs the shared WordNet to be thread-safe.
+   * Inside an outer pool's worker (see WorkerThreads) the documents are featurized in order.
+   * @param docnames The documents to featurize, or null for all of them.
+   * @return The datums of all the documents, in document order whatever the number of threads.
+   */
+  public List<TLinkDatum> featurizeDocuments(SieveDocuments docs, Set<String> docnames, int threads, final DocumentFeaturizer featurizer) {
+    final List<SieveDocument> selected = new ArrayList<SieveDocument>();
+    for( SieveDocument doc : docs.getDocuments() )
+      if( docnames == null || docnames.contains(doc.getDocname()) )
+        selected.add(doc);
+
+    List<TLinkDatum> data = new ArrayList<TLinkDatum>();
+    int numWorkers = Math.min(WorkerThreads.threads(threads), Math.max(1, selected.size()));
+    if( numWorkers == 1 ) {
+      for( int ii = 0; ii < selected.size(); ii++ )
+        data.addAll(featurize(featurizer, selected.get(ii), ii, docs.getDocuments().size()));
+      return data;
+    }
+
+    System.out.println("Featurizing " + selected.size() + " documents with " + numWorkers + " threads.");
+    final int total = docs.getDocuments().size();
+    ExecutorService pool = Executors.newFixedThreadPool(numWorkers);
+    List<Future<List<TLinkDatum>>> futures = new ArrayList<Future<List<TLinkDatum>>>();
+    for( int ii = 0; ii < selected.size(); ii++ ) {
+      final int index = ii;
+      futures.add(pool.submit(new Callable<List<TLinkDatum>>() {
+        public List<TLinkDatum> call() {
+          return featurize(featurizer, selected.get(index), index, total);
+        }
+      }));
+    }
+    pool.shutdown();
+
+    // Merge in document order, not completion order.
+    try {
+      for( Future<List<TLinkDatum>> future : futures )
+        data.addAll(future.get());
+    } catch( InterruptedException ex ) {
+      System.out.println("ERROR: interrupted while featurizing documents in parallel.");
+      ex.printStackTrace();
+      System.exit(1);
+    } catch( ExecutionException ex ) {
+      System.out.println("ERROR: featurizing a document failed.");
+      ex.getCause().printStackTrace();
+      System.exit(1);
+    }
+    return data;
+  }
+
+  private static List<TLinkDatum> featurize(DocumentFeaturizer featurizer, SieveDocument doc, int index, int total) {
+    System.out.println("\n--------------------------------------------------");
+    System.out.println("File " + doc.getDocname() + " (" + (index+1) + " of " + total + ")");
+    return featurizer.featurize(doc);
+  }
+
+  /**
+   * Create a datum for each TLink in one document that the global flags select.
+   */
+  private List<TLinkDatum> featurizeDocument(SieveDocument doc) {
+    List<TLinkDatum> data = new ArrayList<TLinkDatum>();
+    List<SieveSentence> sentences = doc.getSentences();
+    Collection<TLink> tlinks = doc.getTlinks();
+    List<Timex> dcts = doc.getDocstamp();
+    List<List<TypedDependency>> alldeps = doc.getAllDependencies();
+    List<Tree> trees = doc.getAllParseTrees();
+    List<TextEvent> events = doc.getEvents();
+    List<Timex> timexes = doc.getTimexes();
+    int sid = 0;
+    int numBethard = 0;
+    int numTurk = 0;
+    int numTimebank = 0;
+
+    // --- Create the TLink features ---
+
+    for( TLink link : tlinks ) {
 //          System.out.println("tlink: " + link);
 
-          if( (_noTimeTime && link instanceof TimeTimeLink) )
-            continue;
-          
-          if( (_eventEventOnly && link instanceof EventTimeLink) )
-            continue;
-
-          if( (_eventTimeOnly || _eventDCTOnly) && link instanceof EventEventLink )
-            continue;
-          
-          //          System.out.println("Checking link=" + link);
-          boolean isdctlink = TimebankUtil.isEventDCTLink(link, dcts);
-          boolean eventsDominate = oneEventDominates(link, events, trees);
-
-          // Skip event-time links with the document timestamp unless we specifically want them.
-          if( _noEventDCT && link instanceof EventTimeLink && isdctlink ) {
-            if( debug ) System.out.println("Skipping event-DCT link: " + link);
-            continue;
-          }
+      if( (_noTimeTime && link instanceof TimeTimeLink) )
+        continue;
+      
+      if( (_eventEventOnly && link instanceof EventTimeLink) )
+        continue;
 
-          // Skip links that don't syntactically dominate, if desired in global booleans.
-          if( link instanceof EventEventLink && eventsDominate && _eventEventNoDominates ) {
-            if( debug ) System.out.println("Skipping event-event dominates link: " + link);
-            continue;
-          }
-          if( link instanceof EventEventLink && !eventsDominate && _eventEventDominates ) {
-            if( debug ) System.out.println("Skipping event-event doesn't dominate link: " + link);
-            continue;
-          }
+      if( (_eventTimeOnly || _eventDCTOnly) && link instanceof EventEventLink )
+        continue;
+      
+      //          System.out.println("Checking link=" + link);
+      boolean isdctlink = TimebankUtil.isEventDCTLink(link, dcts);
+      boolean eventsDominate = oneEventDominates(link, events, trees);
+
+      // Skip event-time links with the document timestamp unless we specifically want them.
+      if( _noEventDCT && link instanceof EventTimeLink && isdctlink ) {
+        if( debug ) System.out.println("Skipping event-DCT link: " + link);
+        continue;
+      }
 
-          // Statistics tracking.
-          if( !link.closed && !isdctlink && sentenceSpan(doc, link) == 0 ) {
-            if( link.getOrigin() == null ) numTimebank++;
-            else if( link.getOrigin().equals("bethard") ) numBethard++;
-            else if( link.getOrigin().equals("turk") ) numTurk++;
-          }
+      // Skip links that don't syntactically dominate, if desired in global booleans.
+      if( link instanceof EventEventLink && eventsDominate && _eventEventNoDominates ) {
+        if( debug ) System.out.println("Skipping event-event dominates link: " + link);
+        continue;
+      }
+      if( link instanceof EventEventLink && !eventsDominate && _eventEventDominates ) {
+        if( debug ) System.out.println("Skipping event-event doesn't dominate link: " + link);
+        continue;
+      }
+
+      // Statistics tracking.
+      if( !link.closed && !isdctlink && sentenceSpan(doc, link) == 0 ) {
+        if( link.getOrigin() == null ) numTimebank++;
+        else if( link.getOrigin().equals("bethard") ) numBethard++;
+        else if( link.getOrigin().equals("turk") ) numTurk++;
+      }
 
-          // If we only want TimeBank original files.
-          if( link.getOrigin() == null || link.getOrigin().equals("null")    ||
-              (_doBethard && link.getOrigin().equals("bethard"))          ||
-              (_doTurk && link.getOrigin().equals("turk"))                ||
-              (_doTempeval && link.getOrigin().contains("tempeval"))      ||
-              (tempevalTaskE && link.getOrigin().equals("tempeval-main")) ||
-              (tempevalTaskF && link.getOrigin().equals("tempeval-sub"))
-          ) {
-
-            // Skip closed links.
-            if( !link.closed ) {
-              // Only do links that have labels for now. Skip OVERLAP from Bethard...Tempeval3 does not have this relation.
-              if( link.getRelation() != TLink.Type.NONE && link.getRelation() != TLink.Type.OVERLAP ) {
-                int sentenceSpan = (isdctlink ? -1 : sentenceSpan(doc, link));
-
-                System.out.println("link: " + link + "\tspan=" + sentenceSpan);
-
-                if( _eventDCTOnly && !isdctlink ) {
-                  if( debug ) System.out.println("Skipping non-DCT link " + link);
-                  continue;
-                }
-
-                // Skip intra-sentence links. Only keep cross-sentence links.
-                if( (_ignoreSameSentence || _diffSentenceOnly || _neighborSentenceOnly) && sentenceSpan == 0 ) {
-                  if( debug ) System.out.println("Skipping intra-sentence link " + link);
-                  continue;
-                }
-
-                if( _neighborSentenceOnly && sentenceSpan != 1 ) {
-                  if( debug ) System.out.println("Skipping non-neighbor sentence link " + link);
-                  continue;
-                }
-                
-                if( _sameSentenceOnly && sentenceSpan > 0 ) {
-                  if( debug ) System.out.println("Skipping inter-sentence link " + link);
-                  //                  System.out.println("\tspanned " + sentenceSpan(link, events, timexes) + "....link=" + link);
-                  continue;
-                }
-
-                if( _noEventTimeDiff && link instanceof EventTimeLink && !isdctlink && sentenceSpan > 0 )
-                  continue;
-                
-                // Skip links from Turk if they are greater than our experiment's limited sentence span.
-                if( link.getOrigin() != null && link.getOrigin().equals("turk") && sentenceSpan > _turkMaxSentenceSpan ) {
-                  if( debug ) System.out.println("Skipping turk link " + link + "\n\tIt spans " + sentenceSpan + " sentences.");
-                  continue;
-                }
-
-                // Skip links from TimeBank if they are greater than our experiment's limited sentence span.
-                if( !isdctlink && (link.getOrigin() == null || link.getOrigin().equalsIgnoreCase("timebank")) && sentenceSpan > _timebankMaxSentenceSpan ) {
-                  if( debug ) System.out.println("Skipping timebank link " + link + "\n\tIt spans " + sentenceSpan + " sentences.");
-                  continue;
-                }
+      // If we only want TimeBank original files.
+      if( link.getOrigin() == null || link.getOrigin().equals("null")    ||
+          (_doBethard && link.getOrigin().equals("bethard"))          ||
+          (_doTurk && link.getOrigin().equals("turk"))                ||
+          (_doTempeval && link.getOrigin().contains("tempeval"))      ||
+          (tempevalTaskE && link.getOrigin().equals("tempeval-main")) ||
+          (tempevalTaskF && link.getOrigin().equals("tempeval-sub"))
+      ) {
+
+        // Skip closed links.
+        if( !link.closed ) {
+          // Only do links that have labels for now. Skip OVERLAP from Bethard...Tempeval3 does not have this relation.
+          if( link.getRelation() != TLink.Type.NONE && link.getRelation() != TLink.Type.OVERLAP ) {
+            int sentenceSpan = (isdctlink ? -1 : sentenceSpan(doc, link));
+
+            System.out.println("link: " + link + "\tspan=" + sentenceSpan);
+
+            if( _eventDCTOnly && !isdctlink ) {
+              if( debug ) System.out.println("Skipping non-DCT link " + link);
+              continue;
+            }
 
-//                System.out.println("Will create link=" + link);
-                TLinkDatum datum = createTLinkDatum(doc, link, isdctlink);
-                datum.setDocSource(doc.getDocname());
-                data.add(datum);
-                if( debug ) System.out.println("link: " + link);
-                if( debug ) System.out.println("\tdatum: " + datum);
-              }
+            // Skip intra-sentence links. Only keep cross-sentence links.
+            if( (_ignoreSameSentence || _diffSentenceOnly || _neighborSentenceOnly) && sentenceSpan == 0 ) {
+              if( debug ) System.out.println("Skipping intra-sentence link " + link);
+              continue;
+            }
+
+            if( _neighborSentenceOnly && sentenceSpan != 1 ) {
+              if( debug ) System.out.println("Skipping non-neighbor sentence link " + link);
+              continue;
+            }
+            
+            if( _sameSentenceOnly && sentenceSpan > 0 ) {
+              if( debug ) System.out.println("Skipping inter-sentence link " + link);
+              //                  System.out.println("\tspanned " + sentenceSpan(link, events, timexes) + "....link=" + link);
+              continue;
+            }
+
+            if( _noEventTimeDiff && link instanceof EventTimeLink && !isdctlink && sentenceSpan > 0 )
+              continue;
+            
+            // Skip links from Turk if they are greater than our experiment's limited sentence span.
+            if( link.getOrigin() != null && link.getOrigin().equals("turk") && sentenceSpan > _turkMaxSentenceSpan ) {
+              if( debug ) System.out.println("Skipping turk link " + link + "\n\tIt spans " + sentenceSpan + " sentences.");
+              continue;
+            }
+
+            // Skip links from TimeBank if they are greater than our experiment's limited sentence span.
+            if( !isdctlink && (link.getOrigin() == null || link.getOrigin().equalsIgnoreCase("timebank")) && sentenceSpan > _timebankMaxSentenceSpan ) {
+              if( debug ) System.out.println("Skipping timebank link " + link + "\n\tIt spans " + sentenceSpan + " sentences.");
+              continue;
             }
+
+//                System.out.println("Will create link=" + link);
+            TLinkDatum datum = createTLinkDatum(doc, link, isdctlink);
+            datum.setDocSource(doc.getDocname());
+            data.add(datum);
+            if( debug ) System.out.println("link: " + link);
+            if( debug ) System.out.println("\tdatum: " + datum);
           }
         }
-      
-        System.out.println("Doc " + doc.getDocname() + "\tnumbethard=" + numBethard + "\tnumturk=" + numTurk + "\tnumtimebank=" + numTimebank);
       }
-      
-//      break;
     }
-    
+  
+    System.out.println("Doc " + doc.getDocname() + "\tnumbethard=" + numBethard + "\tnumturk=" + numTurk + "\tnumtimebank=" + numTimebank);
     return data;
   }
+
+  /**
+   * @return Every setting that changes which links infoToTLinkFeatures() featurizes, or how.
+   *         Part of the feature cache key, after the dataset's kind.
+   */
+  String flagsKey() {
+    return "bethard=" + _doBethard + " turk=" + _doTurk + " tempeval=" + _doTempeval + " happened=" + _doHappened +
+        " closed=" + _doClosed + " noEventFeats=" + _noEventFeats + " ignoreSameSentence=" + _ignoreSameSentence +
+        " sameSentenceOnly=" + _sameSentenceOnly + " diffSentenceOnly=" + _diffSentenceOnly +
+        " neighborSentenceOnly=" + _neighborSentenceOnly + " eventEventOnly=" + _eventEventOnly +
+        " eventEventDominates=" + _eventEventDominates + " eventEventNoDominates=" + _eventEventNoDominates +
+        " eventTimeOnly=" + _eventTimeOnly + " noEventTimeDiff=" + _noEventTimeDiff + " eventDCTOnly=" + _eventDCTOnly +
+        " noEventDCT=" + _noEventDCT + " noTimeTime=" + _noTimeTime + " timebankMaxSpan=" + _timebankMaxSentenceSpan +
+        " turkMaxSpan=" + _turkMaxSentenceSpan + " tempevalE=" + tempevalTaskE + " tempevalF=" + tempevalTaskF;
+  }
   
   /**
    * Better function that uses the SieveDocument properly.
@@ -693,7 +835,7 @@ public class TLinkFeaturizer {
     
     String token = event1.getString();
     String postag = TreeOperator.indexToPOSTag(trees.get(event1.getSid()), event1.getIndex());
-    String lemma = _wordnet.lemmatizeTaggedWord(token, postag);
+    String lemma = wordnet().lemmatizeTaggedWord(token, postag);
 
     // Token and Lemma
     feats.incrementCount("token" + eventIndex + "-" + token);
@@ -702,9 +844,9 @@ public class TLinkFeaturizer {
     // WordNet synset
     Synset[] synsets = null;
     if( postag.startsWith("VB") )
-      synsets = _wordnet.synsetsOf(token, POS.VERB);
+      synsets = wordnet().synsetsOf(token, POS.VERB);
     else if( postag.startsWith("NN") )
-      synsets = _wordnet.synsetsOf(token, POS.NOUN);
+      synsets = wordnet().synsetsOf(token, POS.NOUN);
     if( synsets != null && synsets.length > 0 )
       feats.incrementCount("synset" + eventIndex + "-" + synsets[0].getOffset());
     
@@ -16,6 +16,21 @@ import java.util.*;
 
 public class DCTHeursitics {
 
+    /**
+     * Sets the document creation time the way the Main.dctHeuristic property says. Batch markup
+     * (Main.markupAll) and CaevoPipeline both call this, so a document gets the same DCT either way.
+     * TODO: use reflection method parallel to how sieves are chosen to choose the right DCTHeuristic method
+     *
+     * @param heuristic The Main.dctHeuristic value: setFirstDateAsDCT, setFixedDateAsDCT, or anything
+     *                  else (e.g. none) to leave the document's DCT alone.
+     * @param dct The date for setFixedDateAsDCT. Not used by the other heuristics.
+     */
+    public static void markupDCT(SieveDocument doc, String heuristic, String dct) {
+        if (heuristic.equals("setFirstDateAsDCT"))
+            setFirstDateAsDCT(doc);  // only if there isn't already a DCT specified!
+        else if (heuristic.equals("setFixedDateAsDCT"))
+            setFixedDateAsDCT(doc, dct);
+    }
 
     /**
      * NOT YET TESTED
@@ -0,0 +1,67 @@
+package caevo.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Symbol table that maps event and time ids (e.g., "ei12", "t3") to dense ints 0..n-1.
+ * Pairs of ids can then be looked up with a single long key, instead of hashing a new
+ * id1+id2 String each time. Concatenated keys can also collide ("ei1"+"ei23" is the
+ * same String as "ei12"+"ei3"), which int pairs cannot.
+ *
+ * Not synchronized: each document has its own index and is processed by one thread.
+ */
+public class IdIndex {
+  private Map<String,Integer> idToIndex = new HashMap<String,Integer>();
+  private List<String> indexToId = new ArrayList<String>();
+
+  /**
+   * @return The int for the given id, assigning the next free int if the id is new.
+   */
+  public int intern(String id) {
+    Integer index = idToIndex.get(id);
+    if( index == null ) {
+      index = indexToId.size();
+      idToIndex.put(id, index);
+      indexToId.add(id);
+    }
+    return index;
+  }
+
+  /**
+   * @return The int for the given id, or -1 if the id was never interned.
+   */
+  public int indexOf(String id) {
+    Integer index = idToIndex.get(id);
+    return (index == null ? -1 : index);
+  }
+
+  public String getId(int index) {
+    return indexToId.get(index);
+  }
+
+  public int size() {
+    return indexToId.size();
+  }
+
+  /**
+   * Key for the ordered pair (id1,id2). The key for (id2,id1) is different.
+   */
+  public long pairKey(String id1, String id2) {
+    return pairKey(intern(id1), intern(id2));
+  }
+
+  public static long pairKey(int index1, int index2) {
+    return ((long)index1 << 32) | (index2 & 0xffffffffL);
+  }
+
+  public static int firstOfPair(long key) {
+    return (int)(key >>> 32);
+  }
+
+  public static int secondOfPair(long key) {
+    return (int)key;
+  }
+}
@@ -0,0 +1,167 @@
+package caevo.util;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import caevo.tlink.LinearScorer;
+import edu.stanford.nlp.classify.Classifier;
+
+/**
+ * One copy of each trained classifier for the whole process. The sieves and the event
+ * classifier ask for their models here instead of deserializing them from the jar themselves,
+ * so creating more sieves (another pipeline, another worker thread, another run over the data)
+ * doesn't read the models again or hold a second copy. Models trained into a file on disk, like
+ * MLVagueSieve's, are shared the same way with getFile().
+ *
+ * A model is loaded on the first request for it, and the others wait for that load to finish.
+ * Different models can load at the same time on different threads. Classifiers are shared
+ * between threads, so callers must not change them; a sieve that trains a new classifier keeps
+ * it in its own field instead.
+ *
+ * printStats() reports how long each model took to load and how much it allocated.
+ */
+public class ModelRegistry {
+  private static final ConcurrentMap<String,Model> models = new ConcurrentHashMap<String,Model>();
+
+  /**
+   * A classpath model or model file, its compiled scorer, and what loading it cost.
+   */
+  public static class Model {
+    private final String resource;
+    private final boolean file;
+    private boolean loaded = false;
+    private Classifier<String,String> classifier;
+    private LinearScorer scorer;
+    private ThreadUsage usage;
+
+    Model(String resource, boolean file) {
+      this.resource = resource;
+      this.file = file;
+    }
+
+    private synchronized void load() {
+      if( loaded ) return;
+      ThreadUsage start = ThreadUsage.now();
+      if( file )
+        classifier = Util.readClassifierFromFile(resource);
+      else
+        classifier = Util.readClassifierFromFile(ModelRegistry.class.getResource(resource));
+      if( classifier != null ) scorer = LinearScorer.compile(classifier);
+      usage = ThreadUsage.now().since(start);
+      loaded = true;
+    }
+
+    public String getResource() { return resource; }
+
+    public synchronized Classifier<String,String> getClassifier() {
+      load();
+      return classifier;
+    }
+
+    /**
+     * @return The classifier compiled by LinearScorer, or null if it isn't a linear classifier.
+     */
+    public synchronized LinearScorer getScorer() {
+      load();
+      return scorer;
+    }
+
+    /**
+     * @return The time and allocation of loading this model, or null if it hasn't loaded yet.
+     */
+    public synchronized ThreadUsage getLoadUsage() {
+      return usage;
+    }
+  }
+
+  /**
+   * @param resource The model's classpath resource, e.g. /models/tlinks/tlink.edct.classifier
+   * @return The model, loading it if this is its first request.
+   */
+  public static Model get(String resource) {
+    return get(resource, resource, false);
+  }
+
+  /**
+   * @param path A model file on disk, e.g. one a sieve's train() wrote.
+   * @return The model, loading it if this is its first request.
+   */
+  public static Model getFile(String path) {
+    String absolute = new File(path).getAbsolutePath();
+    return get("file:" + absolute, absolute, true);
+  }
+
+  private static Model get(String key, String resource, boolean file) {
+    Model model = models.get(key);
+    if( model == null ) {
+      Model created = new Model(resource, file);
+      model = models.putIfAbsent(key, created);
+      if( model == null ) model = created;
+    }
+    model.load();
+    return model;
+  }
+
+  /**
+   * Drop the shared copy of a model file, so the next getFile() reads it again. Call this after
+   * writing a newly trained model over the file.
+   */
+  public static void forgetFile(String path) {
+    models.remove("file:" + new File(path).getAbsolutePath());
+  }
+
+  /**
+   * @return The shared classifier at the classpath resource, or null if it couldn't be read.
+   */
+  public static Classifier<String,String> getClassifier(String resource) {
+    return get(resource).getClassifier();
+  }
+
+  /**
+   * @return The shared compiled scorer for the classpath resource, or null if it isn't linear.
+   */
+  public static LinearScorer getScorer(String resource) {
+    return get(resource).getScorer();
+  }
+
+  /**
+   * @return The models loaded so far, by resource name.
+   */
+  public static List<Model> loadedModels() {
+    List<Model> loaded = new ArrayList<Model>();
+    for( Model model : models.values() )
+      if( model.getLoadUsage() != null )
+        loaded.add(model);
+    Collections.sort(loaded, new Comparator<Model>() {
+      public int compare(Model a, Model b) { return a.getResource().compareTo(b.getResource()); }
+    });
+    return loaded;
+  }
+
+  /**
+   * Print each loaded model's load time and allocated memory, and the totals.
+   * Allocation is what the loading thread allocated while deserializing and compiling the
+   * model, an upper bound on what the model keeps on the heap.
+   */
+  public static void printStats(PrintStream out) {
+    List<Model> loaded = loadedModels();
+    ThreadUsage total = ThreadUsage.ZERO;
+    out.println("MODELS LOADED: " + loaded.size());
+    for( Model model : loaded ) {
+      ThreadUsage usage = model.getLoadUsage();
+      total = total.plus(usage);
+      out.printf("  %s\t%.1f ms\t%s\n", model.getResource(), usage.getWallMillis(), megabytes(usage.getAllocatedBytes()));
+    }
+    out.printf("  total\t%.1f ms\t%s\n", total.getWallMillis(), megabytes(total.getAllocatedBytes()));
+  }
+
+  private static String megabytes(long bytes) {
+    return bytes < 0 ? "n/a" : String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+  }
+}
@@ -0,0 +1,156 @@
+package caevo.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.stanford.nlp.ling.HasWord;
+
+/**
+ * On-disk cache of sentence parses, so re-running raw text markup on unchanged text skips the
+ * parser. Each entry holds the phrase tree and dependency strings that Tempeval3Parser.parseDep()
+ * returns for one sentence, and is keyed by a SHA-1 of the grammar path and the sentence's tokens.
+ * A different grammar or a different tokenization is therefore a different key.
+ *
+ * Entries are files under the cache directory, in subdirectories named by the first two hex
+ * digits of the key. New entries are written to a temporary file and renamed into place, so
+ * several threads (or processes) can share one cache directory.
+ */
+public class ParseCache {
+  private static final int VERSION = 1;
+  private static final String SUFFIX = ".parse";
+
+  private final File dir;
+  private final String grammar;
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /**
+   * @param dirPath The cache directory. It is created if it doesn't exist.
+   * @param grammar The path of the parser's grammar, which is part of every key.
+   */
+  public ParseCache(String dirPath, String grammar) {
+    this.dir = new File(dirPath);
+    this.grammar = grammar;
+    if( !dir.exists() ) dir.mkdirs();
+  }
+
+  /**
+   * @return The cache key for this sentence: hex SHA-1 of the grammar and the token words.
+   */
+  public String key(List<? extends HasWord> sentence) {
+    try {
+      MessageDigest sha = MessageDigest.getInstance("SHA-1");
+      sha.update(grammar.getBytes("UTF-8"));
+      for( HasWord word : sentence ) {
+        sha.update((byte)0);
+        sha.update(word.word().getBytes("UTF-8"));
+      }
+      byte[] digest = sha.digest();
+      StringBuilder sb = new StringBuilder(digest.length * 2);
+      for( byte b : digest ) {
+        sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+        sb.append(Character.forDigit(b & 0xf, 16));
+      }
+      return sb.toString();
+    } catch( NoSuchAlgorithmException ex ) {
+      throw new RuntimeException(ex);
+    } catch( IOException ex ) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  /**
+   * @return The cached (phrase tree, dependencies) pair, or null if the key isn't cached.
+   */
+  public Pair<String,String> get(String key) {
+    File file = fileFor(key);
+    if( !file.exists() ) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if( in.readInt() != VERSION ) {
+        misses.incrementAndGet();
+        return null;
+      }
+      Pair<String,String> parse = new Pair<String,String>(readString(in), readString(in));
+      hits.incrementAndGet();
+      return parse;
+    } catch( IOException ex ) {
+      // A partial or corrupt entry is just a miss; it is overwritten after reparsing.
+      System.out.println("WARNING: unreadable parse cache entry " + file);
+      misses.incrementAndGet();
+      return null;
+    } finally {
+      if( in != null ) try { in.close(); } catch( IOException ex ) { }
+    }
+  }
+
+  /**
+   * Store a parse. Failures are reported but not fatal, since the cache is only an optimization.
+   */
+  public void put(String key, Pair<String,String> parse) {
+    File file = fileFor(key);
+    File parent = file.getParentFile();
+    if( !parent.exists() ) parent.mkdirs();
+
+    File temp = null;
+    DataOutputStream out = null;
+    try {
+      temp = File.createTempFile(key, ".tmp", parent);
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      out.writeInt(VERSION);
+      writeString(out, parse.first());
+      writeString(out, parse.second());
+      out.close();
+      out = null;
+      if( !temp.renameTo(file) ) {
+        // Another thread stored the same sentence first.
+        temp.delete();
+      }
+    } catch( IOException ex ) {
+      System.out.println("WARNING: couldn't write parse cache entry " + file + ": " + ex.getMessage());
+      if( temp != null ) temp.delete();
+    } finally {
+      if( out != null ) try { out.close(); } catch( IOException ex ) { }
+    }
+  }
+
+  public int getHits() { return hits.get(); }
+  public int getMisses() { return misses.get(); }
+  public File getDirectory() { return dir; }
+
+  private File fileFor(String key) {
+    return new File(new File(dir, key.substring(0, 2)), key + SUFFIX);
+  }
+
+  private static void writeString(DataOutputStream out, String str) throws IOException {
+    if( str == null ) out.writeInt(-1);
+    else {
+      byte[] bytes = str.getBytes("UTF-8");
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if( length < 0 ) return null;
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+}
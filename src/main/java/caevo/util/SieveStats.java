@@ -1,9 +1,11 @@
 package caevo.util;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 import caevo.Evaluate;
 import caevo.tlink.EventEventLink;
@@ -27,6 +29,13 @@ public class SieveStats {
 	List<TLink> lonelyLinks = new ArrayList<TLink>();
 	Counter<String> guessCounts = new ClassicCounter<String>();
 	int numProposed = 0, numRemoved = 0, numFromClosure = 0;
+
+	// Time and memory used by this sieve and by the closure passes after it.
+	ThreadUsage sieveUsage = ThreadUsage.ZERO;
+	ThreadUsage closureUsage = ThreadUsage.ZERO;
+	int numClosurePasses = 0, numLinksAdded = 0, numDocuments = 0;
+	// Where addUsage() writes each document's row of the usage CSV, or null to only keep the totals.
+	PrintStream usageRows = null;
 	
 	String statsOutputDir = "sievestats";
 	
@@ -58,6 +67,57 @@ public class SieveStats {
 		lonelyLinks.add(link);
 	}
 
+	public void setUsageRows(PrintStream out) { usageRows = out; }
+	public PrintStream getUsageRows() { return usageRows; }
+
+	/**
+	 * Record what running this sieve on one document cost. Only the sieve's totals are kept;
+	 * the document's row goes straight to the usage CSV, if one was set.
+	 * @param sieve Usage of the sieve itself, including checking and adding its links.
+	 * @param closure Usage of the closure pass after the sieve, or null if closure didn't run.
+	 * @param linksAdded Links the sieve and its closure pass added to the document.
+	 */
+	public void addUsage(String docname, ThreadUsage sieve, ThreadUsage closure, int linksAdded) {
+		DocumentUsage usage = new DocumentUsage(docname, sieve, closure, linksAdded);
+		sieveUsage = sieveUsage.plus(usage.sieve);
+		closureUsage = closureUsage.plus(usage.closure);
+		numClosurePasses += usage.closurePasses;
+		numLinksAdded += linksAdded;
+		numDocuments++;
+		if( usageRows != null )
+			printUsageRow(usageRows, sieveName, usage);
+	}
+
+	/**
+	 * @return Links added per second of wall time spent in this sieve and its closure passes.
+	 */
+	public double linksPerSecond() {
+		return linksPerSecond(numLinksAdded, sieveUsage.plus(closureUsage));
+	}
+
+	private static double linksPerSecond(int links, ThreadUsage usage) {
+		return (usage.getWallNanos() == 0 ? 0.0 : links / (usage.getWallNanos() / 1e9));
+	}
+
+	/**
+	 * Fold the counts and links of another stats object (same sieve, different
+	 * documents) into this one. Used to combine per-thread stats after a parallel run.
+	 */
+	public void merge(SieveStats other) {
+		numProposed += other.numProposed;
+		numRemoved += other.numRemoved;
+		numFromClosure += other.numFromClosure;
+		correctLinks.addAll(other.correctLinks);
+		incorrectLinks.addAll(other.incorrectLinks);
+		lonelyLinks.addAll(other.lonelyLinks);
+		guessCounts.addAll(other.guessCounts);
+		sieveUsage = sieveUsage.plus(other.sieveUsage);
+		closureUsage = closureUsage.plus(other.closureUsage);
+		numClosurePasses += other.numClosurePasses;
+		numLinksAdded += other.numLinksAdded;
+		numDocuments += other.numDocuments;
+	}
+
 	private Counter<String> correctByLinkType() {
 		Counter<String> counts = new ClassicCounter<String>();
 		for( TLink link : correctLinks ) {
@@ -143,6 +203,11 @@ public class SieveStats {
 		printer.println("Links ignored:\t" + numRemoved);
 		printer.println("Links produced from closure:\t" + numFromClosure);
 		printer.println("Links not in gold:\t" + lonelyLinks.size());
+		if( numDocuments > 0 ) {
+			printer.println("Time in sieve:\t" + sieveUsage);
+			printer.println("Time in closure (" + numClosurePasses + " passes):\t" + closureUsage);
+			printer.printf("Links added per second:\t%.1f\n", linksPerSecond());
+		}
 		
 		// Overall precision.
 		double totalGuessed = correctLinks.size() + incorrectLinks.size();
@@ -173,6 +238,85 @@ public class SieveStats {
 		printer.flush();
 	}
 	
+	/**
+	 * Start the CSV of the time and memory each sieve used, in the stats output directory if it is
+	 * a relative name. Give it to each SieveStats with setUsageRows(): there is one row per sieve
+	 * and document, written as the document finishes, so the rows don't pile up in memory over a
+	 * long run. A document's total is the sum of its rows. Times are milliseconds; -1 means the
+	 * JVM couldn't measure it.
+	 * @return The open CSV, or null if it couldn't be created.
+	 */
+	public static PrintStream openUsageCSV(String filename) {
+		try {
+			File dir = new File("sievestats");
+			if( !dir.exists() ) dir.mkdir();
+			File file = new File(filename);
+			if( !file.isAbsolute() ) file = new File(dir, filename);
+			PrintStream out = new PrintStream(file, "UTF-8");
+			out.println("sieve,document,sieve_wall_ms,sieve_cpu_ms,sieve_alloc_bytes,closure_passes,closure_wall_ms,closure_cpu_ms,closure_alloc_bytes,links_added,links_per_sec");
+			System.out.println("Writing sieve timing to " + file);
+			return out;
+		} catch( IOException ex ) {
+			ex.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Finish the usage CSV: one total row per sieve (document "ALL"), then the overall total
+	 * (sieve and document "ALL"). Closes the CSV.
+	 * @param stats The stats, with all worker stats already merged in.
+	 * @param out The CSV from openUsageCSV(), or null to do nothing.
+	 */
+	public static void closeUsageCSV(SieveStats[] stats, PrintStream out) {
+		if( out == null ) return;
+		DocumentUsage total = new DocumentUsage("ALL", ThreadUsage.ZERO, null, 0);
+		for( SieveStats stat : stats ) {
+			DocumentUsage sieveTotal = new DocumentUsage("ALL", stat.sieveUsage, stat.closureUsage, stat.numLinksAdded);
+			sieveTotal.closurePasses = stat.numClosurePasses;
+			printUsageRow(out, stat.sieveName, sieveTotal);
+			total = total.plus(sieveTotal);
+		}
+		printUsageRow(out, "ALL", total);
+		out.close();
+	}
+
+	private static void printUsageRow(PrintStream out, String sieve, DocumentUsage usage) {
+		// One print per row: rows come from several threads in a parallel run.
+		out.print(String.format(Locale.ROOT, "%s,%s,%.3f,%.3f,%d,%d,%.3f,%.3f,%d,%d,%.1f\n", csvField(sieve), csvField(usage.docname),
+				usage.sieve.getWallMillis(), usage.sieve.getCpuMillis(), usage.sieve.getAllocatedBytes(),
+				usage.closurePasses, usage.closure.getWallMillis(), usage.closure.getCpuMillis(), usage.closure.getAllocatedBytes(),
+				usage.linksAdded, linksPerSecond(usage.linksAdded, usage.sieve.plus(usage.closure))));
+	}
+
+	private static String csvField(String str) {
+		if( str.indexOf(',') < 0 && str.indexOf('"') < 0 ) return str;
+		return "\"" + str.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * Usage of one sieve (and its closure pass) on one document, or a sum of several.
+	 */
+	static class DocumentUsage {
+		String docname;
+		ThreadUsage sieve, closure;
+		int closurePasses, linksAdded;
+
+		DocumentUsage(String docname, ThreadUsage sieve, ThreadUsage closure, int linksAdded) {
+			this.docname = docname;
+			this.sieve = sieve;
+			this.closure = (closure == null ? ThreadUsage.ZERO : closure);
+			this.closurePasses = (closure == null ? 0 : 1);
+			this.linksAdded = linksAdded;
+		}
+
+		DocumentUsage plus(DocumentUsage other) {
+			DocumentUsage sum = new DocumentUsage(docname, sieve.plus(other.sieve), closure.plus(other.closure), linksAdded + other.linksAdded);
+			sum.closurePasses = closurePasses + other.closurePasses;
+			return sum;
+		}
+	}
+
 	/**
 	 * Create a file with the statistics for this sieve including all guessed links.
 	 */
@@ -0,0 +1,86 @@
+package caevo.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Wall time, CPU time and allocated bytes used by the current thread, read from ThreadMXBean.
+ * Take a snapshot with now() before some work, and since() after it to get what the work used.
+ * CPU time and allocated bytes are -1 if the JVM can't measure them.
+ */
+public class ThreadUsage {
+  private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private static final boolean cpuSupported;
+  private static final boolean allocSupported;
+
+  static {
+    boolean cpu = false;
+    try {
+      cpu = threads.isCurrentThreadCpuTimeSupported();
+      if( cpu && !threads.isThreadCpuTimeEnabled() ) threads.setThreadCpuTimeEnabled(true);
+    } catch( UnsupportedOperationException ex ) { cpu = false; }
+    cpuSupported = cpu;
+
+    // Allocation counts are only in the HotSpot extension of ThreadMXBean.
+    boolean alloc = false;
+    try {
+      if( threads instanceof com.sun.management.ThreadMXBean ) {
+        com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean)threads;
+        alloc = sunThreads.isThreadAllocatedMemorySupported();
+        if( alloc && !sunThreads.isThreadAllocatedMemoryEnabled() ) sunThreads.setThreadAllocatedMemoryEnabled(true);
+      }
+    } catch( Throwable ex ) { alloc = false; }
+    allocSupported = alloc;
+  }
+
+  public static final ThreadUsage ZERO = new ThreadUsage(0, 0, 0);
+
+  private final long wallNanos;
+  private final long cpuNanos;
+  private final long allocatedBytes;
+
+  public ThreadUsage(long wallNanos, long cpuNanos, long allocatedBytes) {
+    this.wallNanos = wallNanos;
+    this.cpuNanos = cpuNanos;
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  /**
+   * @return The current thread's clock, CPU time and allocation total so far.
+   */
+  public static ThreadUsage now() {
+    long cpu = cpuSupported ? threads.getCurrentThreadCpuTime() : -1;
+    long alloc = allocSupported ? ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    return new ThreadUsage(System.nanoTime(), cpu, alloc);
+  }
+
+  /**
+   * @return What this thread used between the start snapshot and this one.
+   */
+  public ThreadUsage since(ThreadUsage start) {
+    return new ThreadUsage(wallNanos - start.wallNanos,
+        (cpuNanos < 0 || start.cpuNanos < 0) ? -1 : cpuNanos - start.cpuNanos,
+        (allocatedBytes < 0 || start.allocatedBytes < 0) ? -1 : allocatedBytes - start.allocatedBytes);
+  }
+
+  /**
+   * @return The sum of two usages. Unknown (-1) values stay unknown.
+   */
+  public ThreadUsage plus(ThreadUsage other) {
+    return new ThreadUsage(wallNanos + other.wallNanos,
+        (cpuNanos < 0 || other.cpuNanos < 0) ? -1 : cpuNanos + other.cpuNanos,
+        (allocatedBytes < 0 || other.allocatedBytes < 0) ? -1 : allocatedBytes + other.allocatedBytes);
+  }
+
+  public long getWallNanos() { return wallNanos; }
+  public long getCpuNanos() { return cpuNanos; }
+  public long getAllocatedBytes() { return allocatedBytes; }
+
+  public double getWallMillis() { return wallNanos / 1e6; }
+  public double getCpuMillis() { return cpuNanos < 0 ? -1 : cpuNanos / 1e6; }
+
+  public String toString() {
+    return String.format("wall %.1f ms, cpu %.1f ms, alloc %.1f MB", getWallMillis(), getCpuMillis(),
+        allocatedBytes < 0 ? -1.0 : allocatedBytes / (1024.0 * 1024.0));
+  }
+}
@@ -74,8 +74,24 @@ public class WordNet {
 		}   	
   	return path;
   }
+
+  // JWNL's Dictionary is one per process and isn't thread-safe, but the synchronized methods
+  // below only lock their own WordNet. Everything that reads the dictionary goes through these
+  // helpers, which lock the class, so separate WordNet instances don't read it at the same time.
+
+  private static synchronized IndexWord lookupIndexWord(POS pos, String word) throws JWNLException {
+    return Dictionary.getInstance().lookupIndexWord(pos, word);
+  }
+
+  private static synchronized Synset[] sensesOf(IndexWord iword) throws JWNLException {
+    return iword.getSenses();
+  }
+
+  private static synchronized Synset targetSynset(Pointer link) throws JWNLException {
+    return link.getTargetSynset();
+  }
   
-  public String hashSizes() {
+  public synchronized String hashSizes() {
     String str = "WordNet sizes: ";
     str += " " + (_verbToLemma != null ? _verbToLemma.size() : 0);
     str += " " + (_nounToLemma != null ? _nounToLemma.size() : 0);
@@ -97,7 +113,7 @@ public class WordNet {
    * @param word A word
    * @return The lemma of the word if it is a verb, null otherwise
    */
-  public String verbToLemma(String word) {
+  public synchronized String verbToLemma(String word) {
     if( _verbToLemma == null ) _verbToLemma = new HashMap<String, String>();
 
     // save time with a table lookup
@@ -111,7 +127,7 @@ public class WordNet {
       }
 
       // get the lemma
-      IndexWord iword = Dictionary.getInstance().lookupIndexWord(POS.VERB, word);
+      IndexWord iword = lookupIndexWord(POS.VERB, word);
       if( iword == null ) {
         _verbToLemma.put(word, null);
         return null;
@@ -134,7 +150,7 @@ public class WordNet {
    * @param word A word
    * @return The lemma of the word if it is a noun, null otherwise
    */
-  public String nounToLemma(String word) {
+  public synchronized String nounToLemma(String word) {
     if( _nounToLemma == null ) _nounToLemma = new HashMap<String, String>();
 
     // save time with a table lookup
@@ -148,7 +164,7 @@ public class WordNet {
       }
 
       // get the lemma
-      IndexWord iword = Dictionary.getInstance().lookupIndexWord(POS.NOUN, word);
+      IndexWord iword = lookupIndexWord(POS.NOUN, word);
       if( iword == null ) {
         _nounToLemma.put(word, null);
         return null;
@@ -162,7 +178,7 @@ public class WordNet {
           // Here we guess the single form, and return it if the guess exists (e.g. device).
           if( word.endsWith("es") ) {
             String guess = word.substring(0, word.length()-1);
-            IndexWord iGuess = Dictionary.getInstance().lookupIndexWord(POS.NOUN, guess);
+            IndexWord iGuess = lookupIndexWord(POS.NOUN, guess);
             if( iGuess != null && guess.equals(iGuess.getLemma()) ) {
               lemma = guess;
 //              System.out.println("WORDNET guessed singular: " + lemma + " from " + word);
@@ -172,7 +188,7 @@ public class WordNet {
           // "men" and "businessmen" are in WordNet as lemmas ... we need to get the singular man
           else if( word.endsWith("men") ) {
             String guess = word.substring(0, word.length()-2) + "an";
-            IndexWord iGuess = Dictionary.getInstance().lookupIndexWord(POS.NOUN, guess);
+            IndexWord iGuess = lookupIndexWord(POS.NOUN, guess);
             if( iGuess != null && guess.equals(iGuess.getLemma()) ) {
               lemma = guess;
 //              System.out.println("WORDNET guessed singular: " + lemma + " from " + word);
@@ -199,7 +215,7 @@ public class WordNet {
    * @param word A word
    * @return The lemma of the word if it is an adjective, null otherwise
    */
-  public String adjectiveToLemma(String word) {
+  public synchronized String adjectiveToLemma(String word) {
     if( _adjToLemma == null ) _adjToLemma = new HashMap<String, String>();
 
     // save time with a table lookup
@@ -213,7 +229,7 @@ public class WordNet {
       }
 
       // get the lemma
-      IndexWord iword = Dictionary.getInstance().lookupIndexWord(POS.ADJECTIVE, word);
+      IndexWord iword = lookupIndexWord(POS.ADJECTIVE, word);
       if( iword == null ) {
         _adjToLemma.put(word, null);
         return null;
@@ -235,7 +251,7 @@ public class WordNet {
   /**
    * Uses Treebank tags and calls the correct verb, noun, adj lemmatizer.
    */
-  public String lemmatizeTaggedWord(String token, String postag) {
+  public synchronized String lemmatizeTaggedWord(String token, String postag) {
     String lemma = null;
 
     if( postag != null && postag.startsWith("VB") )
@@ -255,13 +271,14 @@ public class WordNet {
   }
 
   /**
-   * @return All synsets for the given word and POS category.
+   * @return All synsets for the given word and POS category. The array is JWNL's own copy,
+   *         shared with every other caller, so don't modify it.
    */
-  public Synset[] synsetsOf(String token, POS postag) {
+  public synchronized Synset[] synsetsOf(String token, POS postag) {
     try {
-      IndexWord iword = Dictionary.getInstance().lookupIndexWord(postag, token);
+      IndexWord iword = lookupIndexWord(postag, token);
       if( iword != null ) {
-        Synset[] synsets = iword.getSenses();
+        Synset[] synsets = sensesOf(iword);
         return synsets;
       }
     } catch( Exception ex ) { ex.printStackTrace(); }
@@ -275,7 +292,7 @@ public class WordNet {
    * @param postag The POS tag of both tokens.
    * @return True if the tokens are siblings, false otherwise.
    */
-  public boolean areSiblings(String token1, String token2, POS postag) {
+  public synchronized boolean areSiblings(String token1, String token2, POS postag) {
     Synset[] synsets1 = synsetsOf(token1, postag);
     Synset[] synsets2 = synsetsOf(token2, postag);
     if( synsets1 != null && synsets2 != null ) {
@@ -295,7 +312,7 @@ public class WordNet {
   /**
    * @return All lemmas that are under the given synset.
    */
-  public List<String> wordsInSynset(Synset synset) {
+  public synchronized List<String> wordsInSynset(Synset synset) {
     List<String> strings = new ArrayList<String>();
     Word[] words = synset.getWords();
     for( Word word : words )
@@ -306,7 +323,7 @@ public class WordNet {
   /**
    * @return True if the synset has a "hypernym instance" link.
    */
-  public boolean hasHypernymInstance(Synset synset) {
+  public synchronized boolean hasHypernymInstance(Synset synset) {
     Pointer[] links = synset.getPointers();
     if( links != null ) {
       for( Pointer link : links )
@@ -320,7 +337,7 @@ public class WordNet {
    * Get the chain of parents from the given synset to the top of the
    * wordnet hierarchy.
    */
-  public List<Synset> hypernymChain(Synset synset) {
+  public synchronized List<Synset> hypernymChain(Synset synset) {
     List<Synset> history = new ArrayList<Synset>();
     history.add(synset);
     return hypernymChain(synset, history);
@@ -333,7 +350,7 @@ public class WordNet {
    * @param history The list of synsets we've already traversed.
    * @return The hypernym chain.
    */
-  public List<Synset> hypernymChain(Synset synset, List<Synset> history) {
+  public synchronized List<Synset> hypernymChain(Synset synset, List<Synset> history) {
     List<Synset> chain = new ArrayList<Synset>();
 
     Pointer[] links = synset.getPointers();
@@ -347,7 +364,7 @@ public class WordNet {
       		System.out.println("WARNING: Null hypernym chain in synset: " + synset.getGloss());
         else if( link.getType().getKey().charAt(0) == hypernymChar ) {
           try {
-            Synset target = link.getTargetSynset();
+            Synset target = targetSynset(link);
             if( !history.contains(target) ) {
               history.add(target);
               chain.add(target);
@@ -369,7 +386,7 @@ public class WordNet {
    * wordnet hierarchy.  Return the chain, but rooted with the given
    * synset.
    */
-  public List<Synset> hypernymChainKeepChild(Synset synset) {
+  public synchronized List<Synset> hypernymChainKeepChild(Synset synset) {
     List<Synset> chain = new ArrayList<Synset>();
     chain.add(synset);
     
@@ -383,7 +400,7 @@ public class WordNet {
   /**
    * Get all synsets that are reachable by hypernym relations from this token.
    */
-  public Set<Synset> getAllSynsetAncestors(String token, POS tag) {
+  public synchronized Set<Synset> getAllSynsetAncestors(String token, POS tag) {
     Synset[] synsets = synsetsOf(token, tag);
     if( synsets != null ) {
       Set<Synset> allsynsets = new HashSet<Synset>();
@@ -401,7 +418,7 @@ public class WordNet {
    * @return true if there is some synset with this token that has a 
    *              nominalization relation attached to it.
    */
-  public boolean isNominalization(String token) {
+  public synchronized boolean isNominalization(String token) {
     Synset[] synsets = synsetsOf(token, POS.NOUN);
     if( synsets == null ) {
       //      System.out.println("isNominalization null synsets: " + token);
@@ -415,7 +432,7 @@ public class WordNet {
             if( link.getType() == PointerType.NOMINALIZATION ) {
               // Check that the nominalized word is a verb (e.g. not an adjective).
               try {
-                Synset target = link.getTargetSynset();
+                Synset target = targetSynset(link);
                 if( target.getPOS() == POS.VERB ) {
                   //		  System.out.println("WordNet isNom() link found: " + link);
                   //		  System.out.println(" --> " + link.getTargetSynset());
@@ -436,7 +453,7 @@ public class WordNet {
    * @param token A noun e.g. explosion
    * @return A list of strings that are verbs e.g. explode, detonate
    */
-  public List<String> getVerbsOfNominalization(String token) {
+  public synchronized List<String> getVerbsOfNominalization(String token) {
     Synset[] synsets = synsetsOf(token, POS.NOUN);
     if( synsets != null ) {
       for( Synset synset : synsets ) {
@@ -447,9 +464,9 @@ public class WordNet {
             if( link.getType() == PointerType.NOMINALIZATION ) {
               // Check that the nominalized word is a verb (e.g. not an adjective).
               try {
-                Synset target = link.getTargetSynset();
+                Synset target = targetSynset(link);
                 if( target.getPOS() == POS.VERB ) {
-                  Synset verbSynset = link.getTargetSynset();
+                  Synset verbSynset = targetSynset(link);
                   Word[] verbs = verbSynset.getWords();
                   List<String> theverbs = new ArrayList<String>();
                   for( Word verb : verbs )
@@ -469,7 +486,7 @@ public class WordNet {
   /**
    * @return True if the token is not known in WordNet
    */
-  public boolean isUnknown(String token) {
+  public synchronized boolean isUnknown(String token) {
     Synset[] synsets = synsetsOf(token, POS.NOUN);
     if( synsets == null )
       return true;
@@ -478,7 +495,7 @@ public class WordNet {
   }
 
 
-  public boolean isNounPerson(String token, boolean mainSynsetOnly) {
+  public synchronized boolean isNounPerson(String token, boolean mainSynsetOnly) {
     return isNounPersonOrGroup(token, mainSynsetOnly, true);
   }
   /**
@@ -486,10 +503,10 @@ public class WordNet {
    * @return true if the token has a synset with an ancestor that is either
    *         Person or Group.
    */
-  public boolean isNounPersonOrGroup(String token) {
+  public synchronized boolean isNounPersonOrGroup(String token) {
     return isNounPersonOrGroup(token, false, false);
   }
-  public boolean isNounPersonOrGroup(String token, boolean mainSynsetOnly, boolean justPerson) {
+  public synchronized boolean isNounPersonOrGroup(String token, boolean mainSynsetOnly, boolean justPerson) {
     if( _isPersonOrGroup == null ) _isPersonOrGroup = new HashMap<String, Boolean>();
     if( _isPersonOrGroup.containsKey(token) ) return _isPersonOrGroup.get(token);
 
@@ -553,7 +570,7 @@ public class WordNet {
     return false;
   }
   
-  public boolean isTimeSynset(Synset synset) {
+  public synchronized boolean isTimeSynset(Synset synset) {
     if( synset != null ) {
       Word[] words = synset.getWords();
       if( words.length >= 1 &&
@@ -563,7 +580,7 @@ public class WordNet {
     return false;
   }
   
-  public boolean isTime(String token) {
+  public synchronized boolean isTime(String token) {
     if( _isTime == null ) _isTime = new HashMap<String, Boolean>();
     if( _isTime.containsKey(token) ) return _isTime.get(token);
 
@@ -589,7 +606,7 @@ public class WordNet {
     return false;
   }
   
-  public boolean isLocation(String token) {
+  public synchronized boolean isLocation(String token) {
     if( _isLocation == null ) _isLocation = new HashMap<String, Boolean>();
     if( _isLocation.containsKey(token) ) return _isLocation.get(token);
 
@@ -618,7 +635,7 @@ public class WordNet {
   /**
    * A more precise lookup of physical structures (more precise than all physical objects)
    */
-  public boolean isStructure(String token) {
+  public synchronized boolean isStructure(String token) {
     if( _isStructure == null ) _isStructure = new HashMap<String, Boolean>();
     if( _isStructure.containsKey(token) ) return _isStructure.get(token);
 
@@ -650,7 +667,7 @@ public class WordNet {
    * Assumes the given token is a noun.
    * @return true if the token has a synset with an ancestor that is Integer
    */
-  public boolean isInteger(String token) {
+  public synchronized boolean isInteger(String token) {
     Synset[] synsets = synsetsOf(token, POS.NOUN);
     //    System.out.println("isNounEntity top " + token);
     if( synsets == null ) {
@@ -678,7 +695,7 @@ public class WordNet {
    * @return true if the token has a synset with an ancestor that is a physical object
    *         synset.
    */
-  public boolean isNonPersonLocationPhysicalObject(String token) {
+  public synchronized boolean isNonPersonLocationPhysicalObject(String token) {
     if( _isNonPersonLocationPhysicalObject == null ) _isNonPersonLocationPhysicalObject = new HashMap<String, Boolean>();
     if( _isNonPersonLocationPhysicalObject.containsKey(token) ) return _isNonPersonLocationPhysicalObject.get(token);
 
@@ -711,7 +728,7 @@ public class WordNet {
    * @return true if the token has a synset with an ancestor that is a physical object
    *         synset.
    */
-  public boolean isPhysicalObject(String token) {
+  public synchronized boolean isPhysicalObject(String token) {
     if( _isPhysicalObject == null ) _isPhysicalObject = new HashMap<String, Boolean>();
     if( _isPhysicalObject.containsKey(token) ) return _isPhysicalObject.get(token);
 
@@ -741,7 +758,7 @@ public class WordNet {
    * @return true if the token has a synset with an ancestor that is a "material" synset.
    *       
    */
-  public boolean isMaterial(String token) {
+  public synchronized boolean isMaterial(String token) {
     if( _isMaterial == null ) _isMaterial = new HashMap<String, Boolean>();
     if( _isMaterial.containsKey(token) ) return _isMaterial.get(token);
 
@@ -772,7 +789,7 @@ public class WordNet {
    * @return true if the token has a synset with an ancestor that is the Event
    *         synset.
    */
-  public boolean isMeasure(String token) {
+  public synchronized boolean isMeasure(String token) {
     // save time with a table lookup
     if( _isMeasure == null ) _isMeasure = new HashMap<String, Boolean>();
     if( _isMeasure.containsKey(token) ) return _isMeasure.get(token);
@@ -808,7 +825,7 @@ public class WordNet {
    * @return true if the token has a synset with an ancestor that is the Event
    *         synset.
    */
-  public boolean isNounEvent(String token) {
+  public synchronized boolean isNounEvent(String token) {
     // save time with a table lookup
     if( _isNounEvent == null ) _isNounEvent = new HashMap<String, Boolean>();
     if( _isNounEvent.containsKey(token) ) return _isNounEvent.get(token);
@@ -841,7 +858,7 @@ public class WordNet {
    * @return true if the token only has "instance hypernym" links from its synsets.
    *              If it has a normal "hypernym", or is unknown, then return false.
    */
-  public boolean isNamedEntity(String token) {
+  public synchronized boolean isNamedEntity(String token) {
     // save time with a table lookup
     if( _isNamedEntity == null ) _isNamedEntity = new HashMap<String, Boolean>();
     if( _isNamedEntity.containsKey(token) ) return _isNamedEntity.get(token);
@@ -865,7 +882,7 @@ public class WordNet {
     return false;
   }
   
-  public Synset getRootSynset() {
+  public synchronized Synset getRootSynset() {
     Synset[] synsets = synsetsOf("entity", POS.NOUN);
     return synsets[0];
   }
@@ -0,0 +1,35 @@
+package caevo.util;
+
+/**
+ * Keeps thread pools from nesting. Main.trainSievesParallel() trains each sieve on a worker
+ * of its own bounded pool, and marks that worker with runAsWorker(). Pools a sieve would open
+ * inside it (TLinkClassifier.train() over several datasets, TLinkFeaturizer.featurizeDocuments())
+ * ask threads() how many threads they may use, and get 1 on a marked worker. So a run uses at
+ * most Main.trainThreads training threads however the sieves are nested.
+ */
+public class WorkerThreads {
+  private static final ThreadLocal<Boolean> worker = new ThreadLocal<Boolean>() {
+    protected Boolean initialValue() { return Boolean.FALSE; }
+  };
+
+  /**
+   * @param requested The threads a pool wants, e.g. from its property.
+   * @return The threads it may start: the requested number, or 1 on an outer pool's worker.
+   */
+  public static int threads(int requested) {
+    return worker.get() ? 1 : Math.max(1, requested);
+  }
+
+  /**
+   * Run the task on this thread as an outer pool's worker, so pools inside it run serially.
+   */
+  public static void runAsWorker(Runnable task) {
+    boolean was = worker.get();
+    worker.set(Boolean.TRUE);
+    try {
+      task.run();
+    } finally {
+      worker.set(was);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package caevo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import junit.framework.TestCase;
+
+/**
+ * Requests the server must refuse before they reach the pipeline, so no models are loaded.
+ */
+public class CaevoServerTest extends TestCase {
+
+	private static int post(URL url, byte[] body, StringBuilder response) throws Exception {
+		HttpURLConnection conn = (HttpURLConnection)url.openConnection();
+		conn.setRequestMethod("POST");
+		conn.setDoOutput(true);
+		OutputStream out = conn.getOutputStream();
+		out.write(body);
+		out.close();
+
+		int code = conn.getResponseCode();
+		InputStream in = (code >= 400 ? conn.getErrorStream() : conn.getInputStream());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int n;
+		while( in != null && (n = in.read(buf)) != -1 )
+			bytes.write(buf, 0, n);
+		if( in != null ) in.close();
+		response.append(bytes.toString("UTF-8"));
+		return code;
+	}
+
+	/**
+	 * A rawxml body with a DOCTYPE is an error, and an external entity is never read.
+	 */
+	public void testRejectsDoctype() throws Exception {
+		File secret = File.createTempFile("caevo-secret", ".txt");
+		secret.deleteOnExit();
+		FileWriter writer = new FileWriter(secret);
+		writer.write("SECRET-FILE-CONTENTS");
+		writer.close();
+
+		CaevoServer server = new CaevoServer(null, CaevoServer.DEFAULT_HOST, 0, 1, 1024);
+		server.start();
+		try {
+			String xml = "<?xml version=\"1.0\"?>\n" +
+					"<!DOCTYPE root [ <!ENTITY xxe SYSTEM \"" + secret.toURI() + "\"> ]>\n" +
+					"<root><DCT>2013-01-01</DCT><TEXT>&xxe;</TEXT></root>\n";
+			StringBuilder response = new StringBuilder();
+			int code = post(new URL("http://127.0.0.1:" + server.getPort() + "/rawxml"), xml.getBytes("UTF-8"), response);
+			assertEquals(400, code);
+			assertFalse(response.toString().contains("SECRET-FILE-CONTENTS"));
+			assertEquals(0, server.getNumServed());
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	/**
+	 * Bodies over the size limit are refused.
+	 */
+	public void testRejectsLargeBody() throws Exception {
+		CaevoServer server = new CaevoServer(null, CaevoServer.DEFAULT_HOST, 0, 1, 1024);
+		server.start();
+		try {
+			StringBuilder response = new StringBuilder();
+			int code = post(new URL("http://127.0.0.1:" + server.getPort() + "/raw"), new byte[4096], response);
+			assertEquals(413, code);
+			assertEquals(0, server.getNumServed());
+		} finally {
+			server.stop(0);
+		}
+	}
+}
@@ -60,4 +60,45 @@ public class ClosureTest extends TestCase {
 			assertTrue("Didn't find (" + link + ") in the auto-generated closure list.", Evaluate.isLinkCorrect(link, newClosed));		
 	}
 
+	/**
+	 * Closing a list in two steps (close a prefix, append more links, close only the new ones)
+	 * must give exactly the links that one full closure over the final list gives.
+	 */
+	public void testIncrementalClosure() throws Exception {
+		String first[] = { 
+				"e1 e2 BEFORE",
+				"e3 e7 SIMULTANEOUS",
+				"e10 e11 SIMULTANEOUS"
+		};
+		String second[] = { 
+				"e2 e3 INCLUDES",
+				"e3 e4 AFTER",
+				"e5 e3 IS_INCLUDED",
+				"e12 e11 SIMULTANEOUS"
+		};
+
+		Closure closure = new Closure();
+
+		// Close the first batch, then append the second batch and only close the new links.
+		List<TLink> links = new ArrayList<TLink>();
+		for( String rule : first ) {
+			String[] arr = rule.split(" ");
+			links.add(new EventEventLink(arr[0], arr[1], TLink.Type.valueOf(arr[2])));
+		}
+		links.addAll(closure.computeClosure(links));
+		for( String rule : second ) {
+			String[] arr = rule.split(" ");
+			links.add(new EventEventLink(arr[0], arr[1], TLink.Type.valueOf(arr[2])));
+		}
+		List<TLink> incremental = closure.computeClosure(links, links.size() - second.length, false);
+		List<TLink> full = closure.computeClosure(links, false);
+
+		assertEquals(full.size(), incremental.size());
+		for( int ii = 0; ii < full.size(); ii++ ) {
+			assertEquals(full.get(ii).getId1(), incremental.get(ii).getId1());
+			assertEquals(full.get(ii).getId2(), incremental.get(ii).getId2());
+			assertEquals(full.get(ii).getRelation(), incremental.get(ii).getRelation());
+		}
+	}
+
 }
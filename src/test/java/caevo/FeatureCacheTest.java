@@ -0,0 +1,98 @@
+package caevo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import caevo.tlink.EventEventLink;
+import caevo.tlink.FeatureCache;
+import caevo.tlink.TLink;
+import caevo.tlink.TLinkDatum;
+import caevo.tlink.TLinkFeaturizer;
+import junit.framework.TestCase;
+
+public class FeatureCacheTest extends TestCase {
+	private File dir;
+
+	protected void setUp() {
+		dir = new File(System.getProperty("java.io.tmpdir"), "caevo-featurecache-" + System.nanoTime());
+	}
+
+	protected void tearDown() {
+		deleteRecursively(dir);
+	}
+
+	public void testStoreAndReload() throws Exception {
+		SieveDocument doc = new SieveDocument("wsj_0001.tml");
+		TLink link = new EventEventLink("ei1", "ei2", TLink.Type.BEFORE);
+		doc.addTlink(link);
+
+		TLinkDatum datum = new TLinkDatum(TLink.Type.BEFORE);
+		datum.setType(TLinkDatum.TYPE.EESAMENODOMINATE);
+		datum.setDocSource(doc.getDocname());
+		datum.setOriginalTLink(link);
+		datum.addFeature("TENSE1-PAST");
+		datum.addFeature("POSPAIR-VBD_VBD", 2.0);
+		List<TLinkDatum> data = new ArrayList<TLinkDatum>();
+		data.add(datum);
+
+		FeatureCache cache = new FeatureCache(dir.getPath());
+		String key = cache.key(doc, "sameSentenceOnly=true");
+		assertNull(cache.get(key, doc));
+		cache.put(key, doc, data);
+
+		// A new cache over the same directory sees the entry.
+		FeatureCache reopened = new FeatureCache(dir.getPath());
+		List<TLinkDatum> cached = reopened.get(reopened.key(doc, "sameSentenceOnly=true"), doc);
+		assertNotNull(cached);
+		assertEquals(1, cached.size());
+		TLinkDatum reloaded = cached.get(0);
+		assertEquals(TLink.Type.BEFORE, reloaded.getLabel());
+		assertEquals(TLinkDatum.TYPE.EESAMENODOMINATE, reloaded.getType());
+		assertEquals("wsj_0001.tml", reloaded.getSourceDoc());
+		assertSame(link, reloaded._originalTLink);
+		assertEquals(datum.getFeatures(), reloaded.getFeatures());
+		assertEquals(1, reopened.getHits());
+
+		// Different flags or different links are different keys.
+		assertFalse(key.equals(cache.key(doc, "sameSentenceOnly=false")));
+		doc.addTlink(new EventEventLink("ei2", "ei3", TLink.Type.AFTER));
+		assertFalse(key.equals(cache.key(doc, "sameSentenceOnly=true")));
+	}
+
+	/**
+	 * Datasets of different kinds from the same document are cached separately.
+	 */
+	public void testCachedKinds() throws Exception {
+		SieveDocument doc = new SieveDocument("wsj_0002.tml");
+		final int[] calls = new int[1];
+		TLinkFeaturizer.DocumentFeaturizer counting = new TLinkFeaturizer.DocumentFeaturizer() {
+			public List<TLinkDatum> featurize(SieveDocument doc) {
+				calls[0]++;
+				List<TLinkDatum> data = new ArrayList<TLinkDatum>();
+				TLinkDatum datum = new TLinkDatum(TLink.Type.NONE);
+				datum.addFeature("CALL-" + calls[0]);
+				data.add(datum);
+				return data;
+			}
+		};
+
+		TLinkFeaturizer featurizer = new TLinkFeaturizer();
+		featurizer._featureCache = new FeatureCache(dir.getPath());
+		List<TLinkDatum> first = featurizer.cached("createDatasetEventDCTExists", counting).featurize(doc);
+		List<TLinkDatum> again = featurizer.cached("createDatasetEventDCTExists", counting).featurize(doc);
+		assertEquals(1, calls[0]);
+		assertEquals(first.get(0).getFeatures(), again.get(0).getFeatures());
+
+		featurizer.cached("createDatasetEventTimeSameSentExists", counting).featurize(doc);
+		assertEquals(2, calls[0]);
+	}
+
+	private static void deleteRecursively(File file) {
+		File[] children = file.listFiles();
+		if( children != null )
+			for( File child : children )
+				deleteRecursively(child);
+		file.delete();
+	}
+}
@@ -0,0 +1,111 @@
+package caevo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import caevo.tlink.EventEventLink;
+import caevo.tlink.LinearScorer;
+import caevo.tlink.TLink;
+import caevo.tlink.TLinkClassifier;
+import caevo.util.Pair;
+import caevo.util.TimebankUtil;
+import edu.stanford.nlp.classify.LinearClassifier;
+import edu.stanford.nlp.classify.LinearClassifierFactory;
+import edu.stanford.nlp.classify.RVFDataset;
+import edu.stanford.nlp.ling.RVFDatum;
+import edu.stanford.nlp.stats.ClassicCounter;
+import edu.stanford.nlp.stats.Counter;
+import edu.stanford.nlp.util.HashIndex;
+import edu.stanford.nlp.util.Index;
+import junit.framework.TestCase;
+
+public class LinearScorerTest extends TestCase {
+
+	private static RVFDatum<String,String> datum(String label, String... features) {
+		Counter<String> feats = new ClassicCounter<String>();
+		for( String feat : features )
+			feats.incrementCount(feat);
+		return new RVFDatum<String,String>(feats, label);
+	}
+
+	private static List<RVFDatum<String,String>> data() {
+		List<RVFDatum<String,String>> data = new ArrayList<RVFDatum<String,String>>();
+		data.add(datum("BEFORE", "TENSE-PAST", "PREP-before", "LEM-say"));
+		data.add(datum("BEFORE", "TENSE-PAST", "PREP-before"));
+		data.add(datum("AFTER", "TENSE-PAST", "PREP-after", "LEM-say"));
+		data.add(datum("AFTER", "PREP-after"));
+		data.add(datum("VAGUE", "TENSE-PRESENT", "LEM-say"));
+		data.add(datum("VAGUE", "TENSE-PRESENT"));
+		return data;
+	}
+
+	/**
+	 * The scorer must agree with TLinkClassifier.getLabelProb() exactly: same label, same
+	 * probability to the last bit, so a sieve's minProb cut keeps and drops the same links.
+	 */
+	private static void assertSameAsClassifier(LinearClassifier<String,String> classifier, LinearScorer scorer, RVFDatum<String,String> test) {
+		Pair<String,Double> expected = TLinkClassifier.getLabelProb(classifier, test);
+		Pair<String,Double> actual = scorer.getLabelProb(test.asFeaturesCounter());
+		assertEquals(expected.first(), actual.first());
+		assertEquals(Double.doubleToLongBits(expected.second()), Double.doubleToLongBits(actual.second()));
+		assertEquals(classifier.classOf(test), scorer.classOf(test.asFeaturesCounter()));
+
+		// A link whose confidence is exactly the minProb survives the cut; just above it doesn't.
+		List<TLink> links = new ArrayList<TLink>();
+		TLink link = new EventEventLink("ei1", "ei2", TLink.Type.valueOf(actual.first()));
+		link.setRelationConfidence(actual.second());
+		links.add(link);
+		TimebankUtil.trimLowProbability(links, expected.second());
+		assertEquals(1, links.size());
+		TimebankUtil.trimLowProbability(links, Math.nextUp(expected.second()));
+		assertEquals(0, links.size());
+	}
+
+	/**
+	 * The compiled scorer gives exactly the classifier's labels and probabilities, including on
+	 * features it never saw and on empty datums.
+	 */
+	public void testSameAsClassifier() {
+		RVFDataset<String,String> train = new RVFDataset<String,String>();
+		for( RVFDatum<String,String> datum : data() )
+			train.add(datum);
+		LinearClassifier<String,String> classifier = new LinearClassifierFactory<String,String>().trainClassifier(train);
+		LinearScorer scorer = LinearScorer.compile(classifier);
+		assertNotNull(scorer);
+		assertEquals(3, scorer.numLabels());
+
+		List<RVFDatum<String,String>> tests = data();
+		tests.add(datum(null, "PREP-before", "UNSEEN-feature"));
+		tests.add(datum(null));
+		for( RVFDatum<String,String> test : tests )
+			assertSameAsClassifier(classifier, scorer, test);
+	}
+
+	/**
+	 * Tied labels go to the one Counters.argmax() picks, which follows the score Counter's hash
+	 * order rather than the classifier's label order.
+	 */
+	public void testTies() {
+		String[] labelNames = { "VAGUE", "SIMULTANEOUS", "IS_INCLUDED", "INCLUDES", "AFTER", "BEFORE", "NONE" };
+		Index<String> labelIndex = new HashIndex<String>();
+		for( String label : labelNames )
+			labelIndex.add(label);
+		Index<String> featureIndex = new HashIndex<String>();
+		featureIndex.add("TIE-two");
+		featureIndex.add("TIE-all");
+
+		// TIE-two raises AFTER and BEFORE equally; TIE-all adds the same weight to every label.
+		double[][] weights = new double[2][labelNames.length];
+		weights[0][labelIndex.indexOf("AFTER")] = 1.5;
+		weights[0][labelIndex.indexOf("BEFORE")] = 1.5;
+		for( int ll = 0; ll < labelNames.length; ll++ )
+			weights[1][ll] = 0.25;
+		LinearClassifier<String,String> classifier = new LinearClassifier<String,String>(weights, featureIndex, labelIndex);
+		LinearScorer scorer = LinearScorer.compile(classifier);
+
+		assertSameAsClassifier(classifier, scorer, datum(null));
+		assertSameAsClassifier(classifier, scorer, datum(null, "TIE-all"));
+		assertSameAsClassifier(classifier, scorer, datum(null, "TIE-two"));
+		assertSameAsClassifier(classifier, scorer, datum(null, "TIE-two", "TIE-all", "UNSEEN-feature"));
+	}
+}
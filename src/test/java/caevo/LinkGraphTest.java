@@ -0,0 +1,71 @@
+package caevo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import caevo.tlink.EventEventLink;
+import caevo.tlink.EventTimeLink;
+import caevo.tlink.LinkGraph;
+import caevo.tlink.TLink;
+import junit.framework.TestCase;
+
+public class LinkGraphTest extends TestCase {
+
+	public void testLookupAndOverwrite() throws Exception {
+		LinkGraph graph = new LinkGraph();
+		TLink vague = new EventEventLink("ei1", "ei23", TLink.Type.VAGUE);
+		TLink before = new EventEventLink("ei12", "ei3", TLink.Type.BEFORE);
+		TLink dct = new EventTimeLink("ei1", "t0", TLink.Type.IS_INCLUDED);
+		graph.add(vague, "sieve1");
+		graph.add(before, "sieve1");
+		graph.add(dct, "sieve2");
+
+		// Pairs are found in either order, and "ei1"+"ei23" is not confused with "ei12"+"ei3".
+		assertSame(vague, graph.getLink("ei23", "ei1"));
+		assertSame(before, graph.getLink("ei12", "ei3"));
+		assertNull(graph.getLink("ei12", "ei23"));
+		assertEquals(2, graph.getLinks("ei1").size());
+		assertEquals(1, graph.getLinksFromOrigin("sieve2").size());
+
+		// Weak links can be overwritten, others cannot.
+		TLink after = new EventEventLink("ei23", "ei1", TLink.Type.AFTER);
+		assertTrue(graph.canAdd(after));
+		assertFalse(graph.canAdd(new EventEventLink("ei3", "ei12", TLink.Type.AFTER)));
+		assertSame(vague, graph.add(after, "sieve3"));
+		assertSame(after, graph.getLink("ei1", "ei23"));
+		assertEquals(3, graph.size());
+		assertSame(after, graph.getLinks().get(2));
+		assertEquals("sieve3", after.getOrigin());
+	}
+
+	/**
+	 * A sieve's link over a pair that only has a VAGUE link replaces it in the pipeline's output.
+	 * Before LinkGraph, the VAGUE link stayed in the output next to the link that replaced it.
+	 */
+	public void testPipelineOverwriteDropsWeakLink() throws Exception {
+		LinkGraph current = new LinkGraph();
+		TLink vague = new EventEventLink("ei1", "ei2", TLink.Type.VAGUE);
+		TLink dct = new EventTimeLink("ei1", "t0", TLink.Type.IS_INCLUDED);
+		List<TLink> first = new ArrayList<TLink>();
+		first.add(vague);
+		first.add(dct);
+		CaevoPipeline.addProposedToCurrentList("sieve1", first, current);
+		List<TLink> before = current.getLinks();
+
+		List<TLink> proposed = new ArrayList<TLink>();
+		TLink after = new EventEventLink("ei2", "ei1", TLink.Type.AFTER);
+		proposed.add(after);
+		proposed.add(new EventTimeLink("t0", "ei1", TLink.Type.INCLUDES));
+		assertEquals(1, CaevoPipeline.removeConflicts(current, proposed, false));
+		CaevoPipeline.addProposedToCurrentList("sieve2", proposed, current);
+
+		assertEquals(2, current.size());
+		assertSame(dct, current.getLinks().get(0));
+		assertSame(after, current.getLinks().get(1));
+		assertFalse(current.getLinks().contains(vague));
+		assertEquals("sieve2", after.getOrigin());
+		// Earlier snapshots don't change.
+		assertSame(vague, before.get(0));
+		assertEquals(2, before.size());
+	}
+}
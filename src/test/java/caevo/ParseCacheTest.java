@@ -0,0 +1,60 @@
+package caevo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import caevo.util.Pair;
+import caevo.util.ParseCache;
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.ling.Word;
+import junit.framework.TestCase;
+
+public class ParseCacheTest extends TestCase {
+	private File dir;
+
+	protected void setUp() {
+		dir = new File(System.getProperty("java.io.tmpdir"), "caevo-parsecache-" + System.nanoTime());
+	}
+
+	protected void tearDown() {
+		deleteRecursively(dir);
+	}
+
+	public void testStoreAndReload() throws Exception {
+		List<HasWord> sentence = words("The", "storm", "hit", ".");
+
+		ParseCache cache = new ParseCache(dir.getPath(), "grammarA");
+		String key = cache.key(sentence);
+		assertNull(cache.get(key));
+		cache.put(key, new Pair<String,String>("(ROOT (S ...))", "det(storm-2, The-1)\nnsubj(hit-3, storm-2)"));
+
+		// A new cache over the same directory sees the entry.
+		ParseCache reopened = new ParseCache(dir.getPath(), "grammarA");
+		Pair<String,String> parse = reopened.get(reopened.key(words("The", "storm", "hit", ".")));
+		assertNotNull(parse);
+		assertEquals("(ROOT (S ...))", parse.first());
+		assertEquals("det(storm-2, The-1)\nnsubj(hit-3, storm-2)", parse.second());
+		assertEquals(1, reopened.getHits());
+
+		// Different tokens or a different grammar are different keys.
+		assertFalse(key.equals(cache.key(words("The", "storm", "hit", "!"))));
+		assertFalse(key.equals(new ParseCache(dir.getPath(), "grammarB").key(sentence)));
+		assertFalse(cache.key(words("ab", "c")).equals(cache.key(words("a", "bc"))));
+	}
+
+	private static List<HasWord> words(String... tokens) {
+		List<HasWord> sentence = new ArrayList<HasWord>();
+		for( String token : tokens )
+			sentence.add(new Word(token));
+		return sentence;
+	}
+
+	private static void deleteRecursively(File file) {
+		File[] children = file.listFiles();
+		if( children != null )
+			for( File child : children )
+				deleteRecursively(child);
+		file.delete();
+	}
+}
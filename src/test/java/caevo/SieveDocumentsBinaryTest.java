@@ -0,0 +1,98 @@
+package caevo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SieveDocumentsBinaryTest extends TestCase {
+
+	public void testRoundTripMatchesXML() throws Exception {
+		InputStream in = getClass().getClassLoader().getResourceAsStream("tempeval3-timebankonly-SIEVE.xml");
+		SieveDocumentsReader xmlReader = new SieveDocumentsReader(in);
+		List<SieveDocument> docs = new ArrayList<SieveDocument>();
+		for( SieveDocument doc : xmlReader ) {
+			docs.add(doc);
+			if( docs.size() == 5 ) break;
+		}
+		xmlReader.close();
+
+		// XML -> binary -> documents
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		SieveDocumentsBinary.Writer binWriter = new SieveDocumentsBinary.Writer(bytes);
+		for( SieveDocument doc : docs )
+			binWriter.write(doc);
+		binWriter.close();
+
+		List<SieveDocument> reloaded = new ArrayList<SieveDocument>();
+		for( SieveDocument doc : new SieveDocumentsBinary.Reader(new ByteArrayInputStream(bytes.toByteArray())) )
+			reloaded.add(doc);
+
+		assertEquals(docs.size(), reloaded.size());
+		assertEquals(toXML(docs), toXML(reloaded));
+		assertEquals(docs.get(0).getTlinks().size(), reloaded.get(0).getTlinks().size());
+		assertNotNull(reloaded.get(0).getEventByEiid(docs.get(0).getEvents().get(0).getEiid()));
+	}
+
+	public void testRejectsOtherVersions() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(SieveDocumentsBinary.MAGIC);
+		out.writeInt(SieveDocumentsBinary.VERSION + 1);
+		out.close();
+		try {
+			new SieveDocumentsBinary.Reader(new ByteArrayInputStream(bytes.toByteArray()));
+			fail("Expected an unsupported version error.");
+		} catch( IOException ex ) { }
+	}
+
+	public void testTruncatedBinaryThrows() throws Exception {
+		InputStream in = getClass().getClassLoader().getResourceAsStream("tempeval3-timebankonly-SIEVE.xml");
+		SieveDocumentsReader xmlReader = new SieveDocumentsReader(in);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		SieveDocumentsBinary.Writer binWriter = new SieveDocumentsBinary.Writer(bytes);
+		binWriter.write(xmlReader.next());
+		binWriter.write(xmlReader.next());
+		binWriter.close();
+		xmlReader.close();
+
+		// Cut the second document short.
+		byte[] all = bytes.toByteArray();
+		byte[] cut = new byte[all.length - 100];
+		System.arraycopy(all, 0, cut, 0, cut.length);
+
+		SieveDocumentsBinary.Reader reader = new SieveDocumentsBinary.Reader(new ByteArrayInputStream(cut));
+		assertNotNull(reader.next());
+		try {
+			reader.hasNext();
+			fail("Expected a truncated file error.");
+		} catch( RuntimeException ex ) { }
+	}
+
+	public void testTruncatedXMLThrows() throws Exception {
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<root xmlns=\"" + SieveDocuments.INFO_NS + "\">\n"
+				+ "<file name=\"a.tml\"></file>\n"
+				+ "<file name=\"b.tml\"><entry";
+		SieveDocumentsReader reader = new SieveDocumentsReader(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+		assertEquals("a.tml", reader.next().getDocname());
+		try {
+			reader.hasNext();
+			fail("Expected a malformed XML error.");
+		} catch( RuntimeException ex ) { }
+	}
+
+	private String toXML(List<SieveDocument> docs) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		SieveDocumentsWriter writer = new SieveDocumentsWriter(bytes);
+		for( SieveDocument doc : docs )
+			writer.write(doc);
+		writer.close();
+		return bytes.toString("UTF-8");
+	}
+}
@@ -0,0 +1,29 @@
+package caevo;
+
+import caevo.util.WorkerThreads;
+import junit.framework.TestCase;
+
+public class WorkerThreadsTest extends TestCase {
+
+	/**
+	 * Pools opened on an outer pool's worker get one thread, and only while that task runs.
+	 */
+	public void testNestedPoolsRunSerially() {
+		assertEquals(4, WorkerThreads.threads(4));
+		assertEquals(1, WorkerThreads.threads(0));
+
+		final int[] inside = new int[2];
+		WorkerThreads.runAsWorker(new Runnable() {
+			public void run() {
+				inside[0] = WorkerThreads.threads(4);
+				WorkerThreads.runAsWorker(new Runnable() {
+					public void run() { }
+				});
+				inside[1] = WorkerThreads.threads(4);
+			}
+		});
+		assertEquals(1, inside[0]);
+		assertEquals(1, inside[1]);
+		assertEquals(4, WorkerThreads.threads(4));
+	}
+}